@@ -0,0 +1,105 @@
+package berlin.tu.csb.controller;
+
+import berlin.tu.csb.model.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the old reflective, name based mapping of the DAO with the RowMapper path on an in memory ResultSet,
+ * so only the client side mapping cost is measured. Run with ./gradlew jmh
+ **/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowMapperBenchmark {
+
+    @Param({"customer", "item", "orders", "order_line"})
+    public String tableName;
+
+    @Param({"1000"})
+    public int rowCount;
+
+    private DatabaseTableModel prototype;
+    private String[] columnNames;
+    private Object[][] rows;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        SeededRandomHelper seededRandomHelper = new SeededRandomHelper(42);
+        switch (tableName) {
+            case "customer": prototype = new Customer(); break;
+            case "item": prototype = new Item(); break;
+            case "orders": prototype = new Order(); break;
+            default: prototype = new OrderLine(); break;
+        }
+        columnNames = prototype.getColumnNames();
+        rows = new Object[rowCount][columnNames.length];
+        for (int row = 0; row < rowCount; row++) {
+            DatabaseTableModel databaseTableModel = prototype.getClass().getDeclaredConstructor().newInstance().setRandomValues(seededRandomHelper);
+            for (int column = 0; column < columnNames.length; column++) {
+                rows[row][column] = databaseTableModel.getClass().getField(columnNames[column]).get(databaseTableModel);
+            }
+        }
+    }
+
+    @Benchmark
+    public void reflectiveNameBased(Blackhole blackhole) throws Exception {
+        ResultSet resultSet = newResultSet();
+        while (resultSet.next()) {
+            DatabaseTableModel databaseTableModel = prototype.getClass().getDeclaredConstructor().newInstance();
+            databaseTableModel.initWithResultSet(resultSet);
+            blackhole.consume(databaseTableModel);
+        }
+    }
+
+    @Benchmark
+    public List<? extends DatabaseTableModel> rowMapper() throws SQLException {
+        return RowMapperRegistry.getRowMapper(prototype).mapAll(newResultSet());
+    }
+
+    // Only implements what the mapping code calls. Lookups by name go through a lower cased map like in pgjdbc.
+    private ResultSet newResultSet() {
+        Map<String, Integer> columnNameIndexMap = new HashMap<>();
+        for (int column = 0; column < columnNames.length; column++) {
+            columnNameIndexMap.put(columnNames[column], column + 1);
+        }
+        int[] currentRow = {-1};
+
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "next":
+                    return ++currentRow[0] < rows.length;
+                case "findColumn":
+                    return findColumn(columnNameIndexMap, (String) args[0]);
+                case "getString":
+                case "getTimestamp":
+                case "getFloat":
+                case "getInt":
+                    int columnIndex = args[0] instanceof String ? findColumn(columnNameIndexMap, (String) args[0]) : (Integer) args[0];
+                    return rows[currentRow[0]][columnIndex - 1];
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    private static int findColumn(Map<String, Integer> columnNameIndexMap, String columnName) throws SQLException {
+        Integer columnIndex = columnNameIndexMap.get(columnName.toLowerCase(Locale.US));
+        if (columnIndex == null) {
+            throw new SQLException("The column name " + columnName + " was not found in this ResultSet.");
+        }
+        return columnIndex;
+    }
+}
@@ -0,0 +1,71 @@
+package berlin.tu.csb.controller;
+
+import berlin.tu.csb.model.BatchSizeSample;
+import berlin.tu.csb.model.BenchmarkConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Chooses the number of rows committed per transaction in the bulk insert path.
+ * The size grows while commits stay well below the target latency and no retries happen,
+ * shrinks when commits get too slow and is halved on every transaction retry error.
+ **/
+public class AdaptiveBatchSizeController {
+    private static final int DEFAULT_INITIAL_BATCH_SIZE = 100;
+    private static final int DEFAULT_MIN_BATCH_SIZE = 10;
+    private static final int DEFAULT_MAX_BATCH_SIZE = 5000;
+    private static final long DEFAULT_TARGET_COMMIT_LATENCY_MILLIS = 500;
+    // only grow while less than this share of the recent chunks needed a retry
+    private static final double MAX_RETRY_RATE_FOR_GROWTH = 0.05;
+    private static final double RETRY_RATE_SMOOTHING = 0.2;
+
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final long targetCommitLatencyNanos;
+    private int batchSize;
+    private double retryRate = 0;
+
+    List<BatchSizeSample> batchSizeSampleList = new ArrayList<>();
+
+    public AdaptiveBatchSizeController(BenchmarkConfig benchmarkConfig) {
+        this.minBatchSize = benchmarkConfig.bulkInsertMinBatchSize > 0 ? benchmarkConfig.bulkInsertMinBatchSize : DEFAULT_MIN_BATCH_SIZE;
+        this.maxBatchSize = Math.max(minBatchSize, benchmarkConfig.bulkInsertMaxBatchSize > 0 ? benchmarkConfig.bulkInsertMaxBatchSize : DEFAULT_MAX_BATCH_SIZE);
+        long targetCommitLatencyMillis = benchmarkConfig.bulkInsertTargetCommitLatencyInMilliseconds > 0 ? benchmarkConfig.bulkInsertTargetCommitLatencyInMilliseconds : DEFAULT_TARGET_COMMIT_LATENCY_MILLIS;
+        this.targetCommitLatencyNanos = targetCommitLatencyMillis * 1_000_000L;
+        int initialBatchSize = benchmarkConfig.bulkInsertInitialBatchSize > 0 ? benchmarkConfig.bulkInsertInitialBatchSize : DEFAULT_INITIAL_BATCH_SIZE;
+        this.batchSize = Math.min(maxBatchSize, Math.max(minBatchSize, initialBatchSize));
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void onChunkRetry() {
+        retryRate = (1 - RETRY_RATE_SMOOTHING) * retryRate + RETRY_RATE_SMOOTHING;
+        batchSize = Math.max(minBatchSize, batchSize / 2);
+    }
+
+    public void onChunkCommitted(String tableName, int committedBatchSize, long commitLatencyNanos, int retries) {
+        if (retries == 0) {
+            retryRate = (1 - RETRY_RATE_SMOOTHING) * retryRate;
+        }
+
+        if (commitLatencyNanos > targetCommitLatencyNanos) {
+            batchSize = Math.max(minBatchSize, (int) (batchSize * 0.75));
+        }
+        else if (commitLatencyNanos < targetCommitLatencyNanos / 2 && retryRate < MAX_RETRY_RATE_FOR_GROWTH && committedBatchSize >= batchSize) {
+            // only grow when the full batch size was used, the last chunk of a list is usually smaller
+            batchSize = Math.min(maxBatchSize, batchSize + Math.max(1, batchSize / 4));
+        }
+
+        BatchSizeSample batchSizeSample = new BatchSizeSample();
+        batchSizeSample.timestampMillis = System.currentTimeMillis();
+        batchSizeSample.tableName = tableName;
+        batchSizeSample.batchSize = committedBatchSize;
+        batchSizeSample.commitLatencyNanos = commitLatencyNanos;
+        batchSizeSample.retries = retries;
+        batchSizeSample.nextBatchSize = batchSize;
+        batchSizeSampleList.add(batchSizeSample);
+    }
+}
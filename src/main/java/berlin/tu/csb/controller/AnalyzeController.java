@@ -1,143 +1,178 @@
 package berlin.tu.csb.controller;
 
-import berlin.tu.csb.model.WorkloadQuery;
+import berlin.tu.csb.model.ClockOffsetSample;
+import berlin.tu.csb.model.LatencyHistogramSnapshot;
+import berlin.tu.csb.model.LatencyTimeSeries;
+import berlin.tu.csb.model.SteadyStateWindow;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.google.gson.JsonSyntaxException;
 import com.google.gson.reflect.TypeToken;
-import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
-import org.apache.commons.math3.util.Pair;
 
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.Reader;
 import java.lang.reflect.Type;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.time.Duration;
-import java.time.Instant;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
 
 public class AnalyzeController {
+    private static final List<String> QUERY_TYPES = List.of("SELECT", "JOIN", "INSERT", "UPDATE");
+    private static String ingestedWorkloadDirectorySubDirName;
+    private static WorkloadIngestionController.IngestedWorkload ingestedWorkload;
 
     public static void main(String[] args) {
+        // 'compare <baseline run> <run> ...' writes one table for several runs, see RunComparisonController
+        if (args.length > 1 && args[0].equals("compare")) {
+            RunComparisonController.compare(Arrays.asList(args).subList(1, args.length));
+            return;
+        }
         List<String> outputStrings = new ArrayList<>();
 
         String workloadDirectorySubDirName = "6suts_4cpus_4t";
 
 
-        Map<String, ArrayList<WorkloadQuery>> workloadQueryMap = getWorkloadQueriesByThread(workloadDirectorySubDirName);
-
-        int queryCounter = workloadQueryMap.values().stream().mapToInt(List::size).sum();
-
-
-        Map<String, List<Double>> mapOfLatenciesPerQueryType = getLatenciesPerQueryType(workloadQueryMap.keySet().stream().map(workloadQueryMap::get).flatMap(List::stream).collect(Collectors.toList()));
-
-        DescriptiveStatistics selectDS = new DescriptiveStatistics();
-        mapOfLatenciesPerQueryType.get("SELECT").forEach(selectDS::addValue);
-
-        DescriptiveStatistics joinDS = new DescriptiveStatistics();
-        mapOfLatenciesPerQueryType.get("JOIN").forEach(joinDS::addValue);
-
-        DescriptiveStatistics insertDS = new DescriptiveStatistics();
-        mapOfLatenciesPerQueryType.get("INSERT").forEach(insertDS::addValue);
-
-        DescriptiveStatistics updateDS = new DescriptiveStatistics();
-        mapOfLatenciesPerQueryType.get("UPDATE").forEach(updateDS::addValue);
-
-        String selectStatisticsString = String.format("Statistics for SELECT Statements - Min value: %f, Max value: %f, Average Value: %f, 25th percentile:%f, 50th percentile:%f, 75th percentile:%f, 90th percentile:%f, 95th percentile:%f, 99th percentile:%f, Percent of complete run: %.2f%%\n", selectDS.getMin(), selectDS.getMax(), selectDS.getMean(), selectDS.getPercentile(25), selectDS.getPercentile(50), selectDS.getPercentile(75), selectDS.getPercentile(90), selectDS.getPercentile(95), selectDS.getPercentile(99), ((double) selectDS.getN() / queryCounter) * 100);
-        String joinStatisticsString = String.format("Statistics for JOIN Statements - Min value: %f, Max value: %f, Average Value: %f, 25th percentile:%f, 50th percentile:%f, 75th percentile:%f, 90th percentile:%f, 95th percentile:%f, 99th percentile:%f, Percent of complete run: %.2f%%\n", joinDS.getMin(), joinDS.getMax(), joinDS.getMean(), joinDS.getPercentile(25), joinDS.getPercentile(50), joinDS.getPercentile(75), joinDS.getPercentile(90), joinDS.getPercentile(95), joinDS.getPercentile(99), ((double) joinDS.getN() / queryCounter) * 100);
-        String insertStatisticsString = String.format("Statistics for INSERT Statements - Min value: %f, Max value: %f, Average Value: %f, 25th percentile:%f, 50th percentile:%f, 75th percentile:%f, 90th percentile:%f, 95th percentile:%f, 99th percentile:%f, Percent of complete run: %.2f%%\n", insertDS.getMin(), insertDS.getMax(), insertDS.getMean(), insertDS.getPercentile(25), insertDS.getPercentile(50), insertDS.getPercentile(75), insertDS.getPercentile(90), insertDS.getPercentile(95), insertDS.getPercentile(99), ((double) insertDS.getN() / queryCounter) * 100);
-        String updateStatisticsString = String.format("Statistics for UPDATE Statements - Min value: %f, Max value: %f, Average Value: %f, 25th percentile:%f, 50th percentile:%f, 75th percentile:%f, 90th percentile:%f, 95th percentile:%f, 99th percentile:%f, Percent of complete run: %.2f%%\n", updateDS.getMin(), updateDS.getMax(), updateDS.getMean(), updateDS.getPercentile(25), updateDS.getPercentile(50), updateDS.getPercentile(75), updateDS.getPercentile(90), updateDS.getPercentile(95), updateDS.getPercentile(99), ((double) updateDS.getN() / queryCounter) * 100);
-        System.out.print(selectStatisticsString);
-        System.out.print(joinStatisticsString);
-        System.out.print(insertStatisticsString);
-        System.out.print(updateStatisticsString);
-
-        outputStrings.add(selectStatisticsString);
-        outputStrings.add(joinStatisticsString);
-        outputStrings.add(insertStatisticsString);
-        outputStrings.add(updateStatisticsString);
+        // the raw latencies are only kept and written to the statistics if this is set, for a long run they are gigabytes
+        boolean isWritingRawValues = false;
+
+        WorkloadIngestionController.IngestedWorkload ingestedWorkload = getIngestedWorkload(workloadDirectorySubDirName);
+        outputStrings.add(String.format("Read %d queries from %d files, %d unreadable files skipped, %d truncated files\n", ingestedWorkload.queryCount, ingestedWorkload.fileCount, ingestedWorkload.skippedFileCount, ingestedWorkload.truncatedFileCount));
+
+        // resolution of the time series, 100 ms shows short stalls, 10 s keeps the series of a long soak small
+        long timeSeriesResolutionInMilliseconds = 1000;
+        LatencyTimeSeries latencyTimeSeries = TimeSeriesController.aggregate(ingestedWorkload.columnsByThread.values(), timeSeriesResolutionInMilliseconds);
+        long endMillis = latencyTimeSeries.getBucketStartMillis(latencyTimeSeries.bucketCount);
+        System.out.printf("Duration of experiment in seconds: %d and number of buckets of %d ms: %d \n", (endMillis - latencyTimeSeries.firstBucketStartMillis) / 1000, timeSeriesResolutionInMilliseconds, latencyTimeSeries.bucketCount);
+        TimeSeriesController.writeCsv(Paths.get(System.getProperty("user.dir"), "workload", workloadDirectorySubDirName, "time_series.csv"), latencyTimeSeries);
+
+        // the warm-up and cool-down are detected in the time series, every statistic below only uses the queries that ended in the steady state
+        int steadyStateBatchSize = 5;
+        SteadyStateWindow steadyStateWindow = SteadyStateController.detect(latencyTimeSeries, steadyStateBatchSize);
+        String steadyStateString = String.format("Steady state from %d to %d (%.0f seconds), cut %.0f seconds of warm-up and %.0f seconds of cool-down\n", steadyStateWindow.startMillis, steadyStateWindow.endMillis, (steadyStateWindow.endMillis - steadyStateWindow.startMillis) / 1000d, steadyStateWindow.warmUpSeconds, steadyStateWindow.coolDownSeconds);
+        System.out.print(steadyStateString);
+        outputStrings.add(steadyStateString);
+
+        // every distribution of the run is a LatencyHistogram, they are written next to the statistics so runs can be merged later
+        Map<String, LatencyHistogram> latencyHistogramMap = new LinkedHashMap<>();
+        Map<String, LatencyHistogram> histogramPerQueryType = new LinkedHashMap<>();
+        Map<String, List<Double>> rawValuesPerQueryType = new HashMap<>();
+        for (String queryType : QUERY_TYPES) {
+            histogramPerQueryType.put(queryType, new LatencyHistogram());
+            rawValuesPerQueryType.put(queryType, new ArrayList<>());
+        }
+        Map<Integer, LatencyHistogram> histogramPerTemplate = new TreeMap<>();
+        Map<Integer, String> templateMap = new HashMap<>();
+        LatencyHistogram allHistogram = new LatencyHistogram();
+        List<Double> rawValuesAll = new ArrayList<>();
+
+        ingestedWorkload.columnsByThread.forEach((key, workloadColumnsList) -> {
+            LatencyHistogram threadHistogram = new LatencyHistogram();
+            for (WorkloadColumns workloadColumns : workloadColumnsList) {
+                templateMap.putAll(workloadColumns.templateMap);
+                for (int i = 0; i < workloadColumns.size; i++) {
+                    if (!steadyStateWindow.contains(workloadColumns.startNanos[i] + workloadColumns.durationNanos[i])) {
+                        continue;
+                    }
+                    long durationNanos = workloadColumns.durationNanos[i];
+                    threadHistogram.record(durationNanos);
+                    String queryType = workloadColumns.getQueryType(i);
+                    LatencyHistogram queryTypeHistogram = histogramPerQueryType.get(queryType);
+                    if (queryTypeHistogram != null) {
+                        queryTypeHistogram.record(durationNanos);
+                    }
+                    if (workloadColumns.templateIds[i] != QueryTemplateRegistry.NO_TEMPLATE) {
+                        histogramPerTemplate.computeIfAbsent(workloadColumns.templateIds[i], templateId -> new LatencyHistogram()).record(durationNanos);
+                    }
+                    if (isWritingRawValues) {
+                        if (queryTypeHistogram != null) {
+                            rawValuesPerQueryType.get(queryType).add(durationNanos / 1_000_000d);
+                        }
+                        rawValuesAll.add(durationNanos / 1_000_000d);
+                    }
+                }
+            }
+            allHistogram.merge(threadHistogram);
+            System.out.printf("Calculating the Values for %s with %d total entries. Min value: %f, Max value: %f, Average Value: %f\n", key, threadHistogram.getCount(), threadHistogram.getMinNanos() / 1_000_000d, threadHistogram.getMaxNanos() / 1_000_000d, threadHistogram.getMeanNanos() / 1_000_000d);
+        });
 
+        histogramPerQueryType.forEach((queryType, latencyHistogram) -> {
+            String queryTypeStatisticsString = String.format("Statistics for %s Statements - %s, Percent of complete run: %.2f%%\n", queryType, getStatisticsString(latencyHistogram), ((double) latencyHistogram.getCount() / allHistogram.getCount()) * 100);
+            System.out.print(queryTypeStatisticsString);
+            outputStrings.add(queryTypeStatisticsString);
+            latencyHistogramMap.put("type." + queryType, latencyHistogram);
+        });
 
-        Map<String, ArrayList<WorkloadQuery>> workloadQueryByVMMap = getWorkloadQueriesByVM(workloadDirectorySubDirName);
+        histogramPerTemplate.forEach((templateId, latencyHistogram) -> {
+            String templateStatisticsString = String.format("Statistics for template %d '%s' - count: %d, Min value: %f, Max value: %f, Average Value: %f, 50th percentile:%f, 95th percentile:%f, 99th percentile:%f\n", templateId, templateMap.get(templateId), latencyHistogram.getCount(), latencyHistogram.getMinNanos() / 1_000_000d, latencyHistogram.getMaxNanos() / 1_000_000d, latencyHistogram.getMeanNanos() / 1_000_000d, latencyHistogram.getValueAtPercentileInMilliseconds(50), latencyHistogram.getValueAtPercentileInMilliseconds(95), latencyHistogram.getValueAtPercentileInMilliseconds(99));
+            System.out.print(templateStatisticsString);
+            outputStrings.add(templateStatisticsString);
+            latencyHistogramMap.put("template." + templateId, latencyHistogram);
+        });
 
-        List<String> latencyByVMs = new ArrayList<>();
         List<String> latencyByVMsRawValues = new ArrayList<>();
-        workloadQueryByVMMap.forEach((s, workloadQueries) -> {
-            DescriptiveStatistics descriptiveStatisticsByVM = new DescriptiveStatistics();
-            workloadQueries.forEach(workloadQuery -> {
-                double rtt = getDifferenceOfTimestampsInMilliseconds(workloadQuery.timestampBeforeCommit, workloadQuery.timestampAfterCommit);
-                descriptiveStatisticsByVM.addValue(rtt);
-            });
-            String latencyByVMString = String.format("Values for vm with id %s for %d entries. Min value: %f, Max value: %f, Average Value: %f, 25th percentile:%f, 50th percentile:%f, 75th percentile:%f, 90th percentile:%f, 95th percentile:%f, 99th percentile:%f\n", s, descriptiveStatisticsByVM.getN(), descriptiveStatisticsByVM.getMin(), descriptiveStatisticsByVM.getMax(), descriptiveStatisticsByVM.getMean(), descriptiveStatisticsByVM.getPercentile(25), descriptiveStatisticsByVM.getPercentile(50), descriptiveStatisticsByVM.getPercentile(75), descriptiveStatisticsByVM.getPercentile(90), descriptiveStatisticsByVM.getPercentile(95), descriptiveStatisticsByVM.getPercentile(99));
-            latencyByVMs.add(latencyByVMString);
+        ingestedWorkload.columnsByVM.forEach((s, workloadColumnsList) -> {
+            LatencyHistogram vmHistogram = new LatencyHistogram();
+            List<Double> rawValues = new ArrayList<>();
+            for (WorkloadColumns workloadColumns : workloadColumnsList) {
+                for (int i = 0; i < workloadColumns.size; i++) {
+                    if (!steadyStateWindow.contains(workloadColumns.startNanos[i] + workloadColumns.durationNanos[i])) {
+                        continue;
+                    }
+                    vmHistogram.record(workloadColumns.durationNanos[i]);
+                    if (isWritingRawValues) {
+                        rawValues.add(workloadColumns.durationNanos[i] / 1_000_000d);
+                    }
+                }
+            }
+            String latencyByVMString = String.format("Values for vm with id %s for %d entries. %s\n", s, vmHistogram.getCount(), getStatisticsString(vmHistogram));
             System.out.print(latencyByVMString);
-            latencyByVMsRawValues.add(Arrays.toString(descriptiveStatisticsByVM.getValues()));
-        });
-
-        outputStrings.addAll(latencyByVMs);
-
-
-
-
-        //System.exit(0);
-
-        DescriptiveStatistics descriptiveStatisticsAll = new DescriptiveStatistics();
-        workloadQueryMap.forEach((key, value) -> {
-            DescriptiveStatistics descriptiveStatistics = new DescriptiveStatistics();
-            value.forEach((workloadQuery -> {
-            if (!workloadQuery.timestampBeforeCommit.isBlank()) { // TODO: remove when fixed in bulk insert orderlines
-
-                double rtt = getDifferenceOfTimestampsInMilliseconds(workloadQuery.timestampBeforeCommit, workloadQuery.timestampAfterCommit);
-                descriptiveStatistics.addValue(rtt);
-                descriptiveStatisticsAll.addValue(rtt);
+            outputStrings.add(latencyByVMString);
+            latencyHistogramMap.put("vm." + s, vmHistogram);
+            if (isWritingRawValues) {
+                latencyByVMsRawValues.add(rawValues.toString());
             }
-            }));
-            //System.out.println(Arrays.toString(descriptiveStatistics.getValues()));
-            System.out.printf("Calculating the Values for %s with %d total entries. Min value: %f, Max value: %f, Average Value: %f\n", key, descriptiveStatistics.getN(), descriptiveStatistics.getMin(), descriptiveStatistics.getMax(), descriptiveStatistics.getMean());
-
         });
-        //System.out.println(Arrays.toString(descriptiveStatisticsAll.getValues()));
-        String rttStatisticsForAllString = String.format("Calculating rtt for all %d entries: Min value: %f, Max value: %f, Average Value: %f, 25th percentile:%f, 50th percentile:%f, 75th percentile:%f, 90th percentile:%f, 95th percentile:%f, 99th percentile:%f\n", descriptiveStatisticsAll.getN(), descriptiveStatisticsAll.getMin(), descriptiveStatisticsAll.getMax(), descriptiveStatisticsAll.getMean(), descriptiveStatisticsAll.getPercentile(25), descriptiveStatisticsAll.getPercentile(50), descriptiveStatisticsAll.getPercentile(75), descriptiveStatisticsAll.getPercentile(90), descriptiveStatisticsAll.getPercentile(95), descriptiveStatisticsAll.getPercentile(99));
+
+        String rttStatisticsForAllString = String.format("Calculating rtt for all %d entries: %s\n", allHistogram.getCount(), getStatisticsString(allHistogram));
         System.out.print(rttStatisticsForAllString);
         outputStrings.add(rttStatisticsForAllString);
+        latencyHistogramMap.put("all", allHistogram);
+
+        // the same distributions corrected for coordinated omission, see LatencyCorrectionController
+        // the expected interval is taken per vm and thread, the records of different vms must not be interleaved
+        Map<String, LatencyHistogram> correctedHistogramPerQueryType = new LinkedHashMap<>();
+        for (String queryType : QUERY_TYPES) {
+            correctedHistogramPerQueryType.put(queryType, new LatencyHistogram());
+        }
+        LatencyHistogram correctedAllHistogram = new LatencyHistogram();
+        ingestedWorkload.columnsByThread.forEach((key, workloadColumnsList) -> LatencyCorrectionController.recordCorrectedLatencies(workloadColumnsList, steadyStateWindow, correctedHistogramPerQueryType, correctedAllHistogram));
+        String correctedRttStatisticsForAllString = String.format("Corrected rtt for all %d entries (%d synthetic): %s\n", correctedAllHistogram.getCount(), correctedAllHistogram.getCount() - allHistogram.getCount(), getStatisticsString(correctedAllHistogram));
+        System.out.print(correctedRttStatisticsForAllString);
+        outputStrings.add(correctedRttStatisticsForAllString);
+        latencyHistogramMap.put("corrected.all", correctedAllHistogram);
+
+        correctedHistogramPerQueryType.forEach((queryType, correctedHistogram) -> {
+            String correctedStatisticsString = String.format("Corrected statistics for %s Statements - count: %d, Min value: %f, Max value: %f, Average Value: %f, 50th percentile:%f, 90th percentile:%f, 95th percentile:%f, 99th percentile:%f\n", queryType, correctedHistogram.getCount(), correctedHistogram.getMinNanos() / 1_000_000d, correctedHistogram.getMaxNanos() / 1_000_000d, correctedHistogram.getMeanNanos() / 1_000_000d, correctedHistogram.getValueAtPercentileInMilliseconds(50), correctedHistogram.getValueAtPercentileInMilliseconds(90), correctedHistogram.getValueAtPercentileInMilliseconds(95), correctedHistogram.getValueAtPercentileInMilliseconds(99));
+            System.out.print(correctedStatisticsString);
+            outputStrings.add(correctedStatisticsString);
+            latencyHistogramMap.put("corrected.type." + queryType, correctedHistogram);
+        });
 
-        List<WorkloadQuery> listOfAllWorkloadQueries = new ArrayList<>();
-        workloadQueryMap.forEach((s, workloadQueryList) -> listOfAllWorkloadQueries.addAll(workloadQueryList));
-        Map<Long, List<Long>> mapOfPingsPerSecond = createListWithSummedQueriesPerSecond(listOfAllWorkloadQueries);
-        Pair<Long, Long> minMaxPair = getMinMaxTimeMillis(listOfAllWorkloadQueries);
-        mapOfPingsPerSecond = fillGaps(mapOfPingsPerSecond, minMaxPair.getKey(), minMaxPair.getValue());
+        writeLatencyHistograms(Paths.get(System.getProperty("user.dir"), "workload", workloadDirectorySubDirName, "latency_histograms.json"), latencyHistogramMap);
 
-        Map<Long, Long> mapOfRTTPerSecondWithAverages = new LinkedHashMap<>();
-        Map<Long, Integer> mapOfTransactionsPerSecond = new LinkedHashMap<>();
         DescriptiveStatistics rollingDS = new DescriptiveStatistics();
         DescriptiveStatistics qpsDS = new DescriptiveStatistics();
-
-        AtomicInteger counter = new AtomicInteger();
-        mapOfPingsPerSecond.forEach((aLong, longs) -> {
-            // cut of warmup and cooldown
-            Instant currentTime = Instant.ofEpochMilli(aLong);
-            long cutOffSecondsBegin = 120;
-            long cutOffSecondsEnd = 20;
-            if(currentTime.isAfter(Instant.ofEpochMilli(minMaxPair.getKey()).plusSeconds(cutOffSecondsBegin)) && currentTime.isBefore(Instant.ofEpochMilli(minMaxPair.getValue()).minusSeconds(cutOffSecondsEnd))) {
-                mapOfRTTPerSecondWithAverages.put(aLong, longs.stream().mapToLong(Long::longValue).sum() / longs.size());
-                rollingDS.addValue(longs.stream().mapToLong(Long::longValue).sum() / longs.size());
-
-                mapOfTransactionsPerSecond.put(aLong, longs.size());
-                qpsDS.addValue(longs.size());
-
+        for (int bucket = steadyStateWindow.firstBucket; bucket < steadyStateWindow.endBucket; bucket++) {
+            // a bucket without queries has no latency, but it is a bucket without throughput
+            if (latencyTimeSeries.counts[bucket] > 0) {
+                rollingDS.addValue(latencyTimeSeries.meanMillis[bucket]);
             }
-            counter.getAndIncrement();
-        });
+            qpsDS.addValue(latencyTimeSeries.getQueriesPerSecond(bucket));
+        }
 
         //System.out.println(Arrays.toString(rollingDS.getValues()));
         String latencyPerSecondStatistic = String.format("Important values for normalized time series Latency. count: %d, Min value: %f, Max value: %f, Average Value: %f, 25th percentile:%f, 50th percentile:%f, 75th percentile:%f, 90th percentile:%f, 95th percentile:%f, 99th percentile:%f\n", rollingDS.getN(), rollingDS.getMin(), rollingDS.getMax(), rollingDS.getMean(), rollingDS.getPercentile(25), rollingDS.getPercentile(50), rollingDS.getPercentile(75), rollingDS.getPercentile(90), rollingDS.getPercentile(95), rollingDS.getPercentile(99));
@@ -150,20 +185,19 @@ public class AnalyzeController {
         outputStrings.add(latencyPerSecondStatistic);
         outputStrings.add(transactionsPerSecondStatistics);
 
-        outputStrings.add(String.format("Raw values:%n%n"));
-        int id = 1;
-        for (Object s: latencyByVMsRawValues.toArray()) {
-            outputStrings.add(String.format("Raw Values latency per VM ID - %d:%n%n%s%n%n%n%n***", id++, (String) s));
+        if (isWritingRawValues) {
+            outputStrings.add(String.format("Raw values:%n%n"));
+            int id = 1;
+            for (String s : latencyByVMsRawValues) {
+                outputStrings.add(String.format("Raw Values latency per VM ID - %d:%n%n%s%n%n%n%n***", id++, s));
+            }
+            for (String queryType : QUERY_TYPES) {
+                outputStrings.add(String.format("Raw Values latency unsorted for %s statements:%n%n%s%n%n%n***", queryType.toLowerCase(), rawValuesPerQueryType.get(queryType)));
+            }
+            outputStrings.add(String.format("Raw Values latency unsorted for complete run:%n%n%s%n%n%n***", rawValuesAll));
         }
-
-        outputStrings.add(String.format("Raw Values latency unsorted for select statements:%n%n%s%n%n%n***", Arrays.toString(selectDS.getValues())));
-        outputStrings.add(String.format("Raw Values latency unsorted for join statements:%n%n%s%n%n%n***", Arrays.toString(joinDS.getValues())));
-        outputStrings.add(String.format("Raw Values latency unsorted for insert statements:%n%n%s%n%n%n***", Arrays.toString(insertDS.getValues())));
-        outputStrings.add(String.format("Raw Values latency unsorted for update statements:%n%n%s%n%n%n***", Arrays.toString(updateDS.getValues())));
-
-        outputStrings.add(String.format("Raw Values latency unsorted for complete run:%n%n%s%n%n%n***", Arrays.toString(descriptiveStatisticsAll.getValues())));
-        outputStrings.add(String.format("1 sec latency for complete run:%n%n%s%n%n%n***", Arrays.toString(rollingDS.getValues())));
-        outputStrings.add(String.format("1 sec transactions per second for complete run:%n%n%s%n%n%n***", Arrays.toString(qpsDS.getValues())));
+        outputStrings.add(String.format("%d ms latency for complete run:%n%n%s%n%n%n***", timeSeriesResolutionInMilliseconds, Arrays.toString(rollingDS.getValues())));
+        outputStrings.add(String.format("%d ms transactions per second for complete run:%n%n%s%n%n%n***", timeSeriesResolutionInMilliseconds, Arrays.toString(qpsDS.getValues())));
 
 
         Path filePath = Paths.get(System.getProperty("user.dir"), "workload", workloadDirectorySubDirName, "statistics.txt");
@@ -179,285 +213,105 @@ public class AnalyzeController {
 
 
 
-    public static Map<Long, List<Long>> fillGaps(Map<Long, List<Long>> mapOfPingsPerSecond, long startMillis, long endMillis) {
-        Instant i = Instant.ofEpochMilli(startMillis).truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
-        for (;i.isBefore(Instant.ofEpochMilli(endMillis)); i = i.plusSeconds(1)) {
-            if (mapOfPingsPerSecond.get(i.toEpochMilli()) == null) {
-                mapOfPingsPerSecond.put(i.toEpochMilli(), new ArrayList<>());
-
-                // Look for next an previos value to build average over them. Use only previous when there are bigger gaps
-                Long previousValue = mapOfPingsPerSecond.get(i.minusSeconds(1).toEpochMilli()).get(0);
-                Long nextValue;
-                if (mapOfPingsPerSecond.get(i.plusSeconds(1).toEpochMilli()) == null) {
-                    nextValue = previousValue;
-                }
-                else {
-                    nextValue = mapOfPingsPerSecond.get(i.plusSeconds(1).toEpochMilli()).get(0);
-                }
-                mapOfPingsPerSecond.get(i.toEpochMilli()).add((previousValue + nextValue) / 2);
-
-                System.out.printf("Filled gap at %d with average of %d and %d\n", i.getEpochSecond(), previousValue, nextValue);
-            }
+    /**
+     * Reads the clock offset samples every vm wrote during the run phase ('clock_offsets_run.json', downloaded as
+     * 'clock_offsets_run (2).json'), filtered and sorted for ClockOffsetController.getOffsetNanos. A vm without samples
+     * is missing in the map and its timeline is used as recorded. If the vms used different reference nodes the map is
+     * empty, their clocks can differ by up to the max-offset of the cluster.
+     **/
+    public static Map<String, List<ClockOffsetSample>> getClockOffsetsByVM(String workloadDirectorySubDirName) {
+        Map<String, List<ClockOffsetSample>> clockOffsetsByVM = new HashMap<>();
+        File[] files = Paths.get(System.getProperty("user.dir"), "workload", workloadDirectorySubDirName).toFile().listFiles();
+        if (files == null) {
+            return clockOffsetsByVM;
         }
-        return mapOfPingsPerSecond;
-    }
-
-    public static Pair<Long, Long> getMinMaxTimeMillis(List<WorkloadQuery> workloadQueryList) {
-        DescriptiveStatistics ds = new DescriptiveStatistics();
-
-        workloadQueryList.forEach(workloadQuery -> {
-
-            if (!workloadQuery.timestampAfterCommit.isBlank() && !workloadQuery.timestampBeforeCommit.isBlank()) {
-
-
-                SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH.mm.ss.SSS");
-
-                Instant before = null;
-                Instant after = null;
-                try {
-                    before = format.parse(workloadQuery.timestampBeforeCommit).toInstant();
-                    after = format.parse(workloadQuery.timestampAfterCommit).toInstant();
-                } catch (ParseException e) {
-                    e.printStackTrace();
-                }
-
-                ds.addValue(before.toEpochMilli());
-                ds.addValue(after.toEpochMilli());
+        Gson gson = new Gson();
+        Type clockOffsetSampleListType = new TypeToken<List<ClockOffsetSample>>() {}.getType();
+        for (File file : files) {
+            if (!file.isFile() || !file.getName().startsWith("clock_offsets_run")) {
+                continue;
             }
-        });
-
-        return new Pair<Long, Long>((long) ds.getMin(), (long) ds.getMax());
-
-    }
-
-    public static Map<Long, List<Long>> createListWithSummedQueriesPerSecond(List<WorkloadQuery> workloadQueryList) {
-        DescriptiveStatistics dsStart = new DescriptiveStatistics();
-        DescriptiveStatistics dsEnd = new DescriptiveStatistics();
-        Map<Long, List<Long>> mapOfPingsPerSecond = new LinkedHashMap<>();
-        workloadQueryList.forEach(workloadQuery -> {
-
-            if (!workloadQuery.timestampAfterCommit.isBlank() && !workloadQuery.timestampBeforeCommit.isBlank()) {
-
-
-                SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH.mm.ss.SSS");
-
-                Instant before = null;
-                Instant after = null;
-                try {
-                    before = format.parse(workloadQuery.timestampBeforeCommit).toInstant();
-                    after = format.parse(workloadQuery.timestampAfterCommit).toInstant();
-                } catch (ParseException e) {
-                    e.printStackTrace();
-                }
-
-                dsStart.addValue(before.toEpochMilli());
-                dsEnd.addValue(after.toEpochMilli());
-
-                Instant afterWithoutMilliseconds = after.truncatedTo(ChronoUnit.SECONDS);
-
-                if (mapOfPingsPerSecond.get(afterWithoutMilliseconds.toEpochMilli()) == null) {
-                    mapOfPingsPerSecond.put(afterWithoutMilliseconds.toEpochMilli(), new ArrayList<>());
+            try (Reader reader = Files.newBufferedReader(file.toPath())) {
+                List<ClockOffsetSample> filteredSampleList = ClockOffsetController.getFilteredSamples(gson.fromJson(reader, clockOffsetSampleListType));
+                String vmKey = "vm-" + getVmId(file.getName());
+                clockOffsetsByVM.put(vmKey, filteredSampleList);
+                if (!filteredSampleList.isEmpty()) {
+                    LongSummaryStatistics offsetStatistics = filteredSampleList.stream().mapToLong(clockOffsetSample -> clockOffsetSample.offsetNanos).summaryStatistics();
+                    System.out.printf("Clock offset of %s to %s from %d samples: %.3f ms to %.3f ms\n", vmKey, filteredSampleList.get(0).serverAddress, filteredSampleList.size(), offsetStatistics.getMin() / 1_000_000d, offsetStatistics.getMax() / 1_000_000d);
                 }
-                mapOfPingsPerSecond.get(afterWithoutMilliseconds.toEpochMilli()).add(Duration.between(before, after).toMillis());
+            } catch (IOException | JsonSyntaxException e) {
+                e.printStackTrace();
             }
-        });
-
-        System.out.printf("Duration of experiment in seconds: %d and number of lists in map: %d \n", Duration.between(Instant.ofEpochMilli((long) dsStart.getMin()), Instant.ofEpochMilli((long) dsEnd.getMax())).toSeconds(), mapOfPingsPerSecond.size());
-
-        System.out.printf("First event at %f and last event at %f \n", dsStart.getMin(), dsEnd.getMax());
-        return mapOfPingsPerSecond;
-    }
-
-    public static double getDifferenceOfTimestampsInMilliseconds(String timestampFirst, String timestampLast) {
-        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH.mm.ss.SSS");
-
-        Date first = null;
-        Date second = null;
-        try {
-            first = format.parse(timestampFirst);
-            second = format.parse(timestampLast);
-        } catch (ParseException e) {
-            e.printStackTrace();
         }
-        return second.getTime() - first.getTime();
-
-    }
-
-    public static Map<String, ArrayList<WorkloadQuery>> getWorkloadQueriesByThread(String workloadDirectorySubDirName) {
-        Gson gson = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
-        Path filePath = Paths.get(System.getProperty("user.dir"), "workload", workloadDirectorySubDirName);
-        Path filePathCache = Paths.get(System.getProperty("user.dir"), "workload", workloadDirectorySubDirName, workloadDirectorySubDirName + "_cache.json");
-
-        if(Files.exists(filePathCache)) {
-            return loadWorkloadQueriesCache(filePathCache);
+        // the offsets only put the vms on one timeline if all of them were measured against the same node
+        Set<String> referenceAddressSet = new TreeSet<>();
+        clockOffsetsByVM.values().forEach(filteredSampleList -> filteredSampleList.forEach(clockOffsetSample -> referenceAddressSet.add(String.valueOf(clockOffsetSample.serverAddress))));
+        if (referenceAddressSet.size() > 1) {
+            System.out.printf("The vms measured their clock offsets against different nodes %s, the timelines are used as recorded\n", referenceAddressSet);
+            clockOffsetsByVM.clear();
         }
-
-        File folder = new File(filePath.toUri());
-        File[] files = folder.listFiles();
-
-        int fileCounter = 0;
-        int workloadQueryCounter = 0;
-        Map<String, ArrayList<WorkloadQuery>> workloadQueryMap = new HashMap<>();
-        for (File file : files) {
-            if (file.isFile() && file.getName().contains("run_")) {
-                String readedJson = null;
-                try {
-                    readedJson = Files.readString(file.toPath());
-                    fileCounter++;
-                } catch (
-                        IOException e) {
-                    e.printStackTrace();
-                }
-                WorkloadQuery[] workloadQueriesFromFile = gson.fromJson(readedJson, WorkloadQuery[].class);
-                String key = "Thread-" + workloadQueriesFromFile[0].workloadContextId;
-                if (workloadQueryMap.get(key) == null) {
-                    workloadQueryMap.put(key, new ArrayList<WorkloadQuery>(Arrays.asList(workloadQueriesFromFile)));
-                }
-                else {
-                    workloadQueryMap.get(key).addAll(Arrays.asList(workloadQueriesFromFile));
-                }
-
-                workloadQueryCounter += workloadQueriesFromFile.length;
-            }
-        }
-
-        saveWorkloadQueriesCache(workloadQueryMap, workloadDirectorySubDirName);
-
-        System.out.printf("Read %d workloadQueries from %d files of the run at %s\n", workloadQueryCounter, fileCounter, workloadDirectorySubDirName);
-        return workloadQueryMap;
+        return clockOffsetsByVM;
     }
 
-    public static Map<String, ArrayList<WorkloadQuery>> getWorkloadQueriesByVM(String workloadDirectorySubDirName) {
-        Gson gson = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
-        Path filePath = Paths.get(System.getProperty("user.dir"), "workload", workloadDirectorySubDirName);
-        Path filePathCache = Paths.get(System.getProperty("user.dir"), "workload", workloadDirectorySubDirName, workloadDirectorySubDirName + "_vm_cache.json");
-
-        if(Files.exists(filePathCache)) {
-            return loadWorkloadQueriesCache(filePathCache);
+    // moves the timeline of a trace from the clock of its vm to the clock of the server the offsets were measured against
+    private static void applyClockOffsets(WorkloadColumns workloadColumns, List<ClockOffsetSample> filteredSampleList) {
+        if (filteredSampleList == null || filteredSampleList.isEmpty()) {
+            return;
         }
-
-        File folder = new File(filePath.toUri());
-        File[] files = folder.listFiles();
-
-        int fileCounter = 0;
-        int workloadQueryCounter = 0;
-        Map<String, ArrayList<WorkloadQuery>> workloadQueryMap = new HashMap<>();
-        for (File file : files) {
-            // is file in format 'run_16 (2).json' where '(2)' is meant to be the vm id
-            if (file.isFile() && file.getName().contains("run_") && file.getName().contains("(") && file.getName().contains(")")) {
-                String readedJson = null;
-                try {
-                    readedJson = Files.readString(file.toPath());
-                    fileCounter++;
-                } catch (
-                        IOException e) {
-                    e.printStackTrace();
-                }
-                WorkloadQuery[] workloadQueriesFromFile = gson.fromJson(readedJson, WorkloadQuery[].class);
-                String key = "vm-" + StringUtils.substringBetween(file.getName(), "(", ")");;
-                if (workloadQueryMap.get(key) == null) {
-                    workloadQueryMap.put(key, new ArrayList<WorkloadQuery>(Arrays.asList(workloadQueriesFromFile)));
-                }
-                else {
-                    workloadQueryMap.get(key).addAll(Arrays.asList(workloadQueriesFromFile));
-                }
-
-                workloadQueryCounter += workloadQueriesFromFile.length;
-            }
-            // is file in format 'run_16.json' which is vm id 1
-            else if (file.isFile() && file.getName().contains("run_") && !file.getName().contains("(") && !file.getName().contains(")")) {
-                String readedJson = null;
-                try {
-                    readedJson = Files.readString(file.toPath());
-                    fileCounter++;
-                } catch (
-                        IOException e) {
-                    e.printStackTrace();
-                }
-                WorkloadQuery[] workloadQueriesFromFile = gson.fromJson(readedJson, WorkloadQuery[].class);
-                String key = "vm-" + 1;
-                if (workloadQueryMap.get(key) == null) {
-                    workloadQueryMap.put(key, new ArrayList<WorkloadQuery>(Arrays.asList(workloadQueriesFromFile)));
-                }
-                else {
-                    workloadQueryMap.get(key).addAll(Arrays.asList(workloadQueriesFromFile));
-                }
-
-                workloadQueryCounter += workloadQueriesFromFile.length;
+        for (int i = 0; i < workloadColumns.size; i++) {
+            long offsetNanos = ClockOffsetController.getOffsetNanos(filteredSampleList, workloadColumns.startNanos[i]);
+            workloadColumns.startNanos[i] += offsetNanos;
+            if (workloadColumns.intendedStartNanos[i] != 0) {
+                workloadColumns.intendedStartNanos[i] += offsetNanos;
             }
         }
-
-
-        saveWorkloadQueriesByVMCache(workloadQueryMap, workloadDirectorySubDirName);
-
-        System.out.printf("Read %d workloadQueries from %d files of the run at %s\n", workloadQueryCounter, fileCounter, workloadDirectorySubDirName);
-        return workloadQueryMap;
     }
 
-    private static void saveWorkloadQueriesCache(Map<String, ArrayList<WorkloadQuery>> workloadQueryMap, String workloadDirectorySubDirName) {
-        Gson gson = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
-        String json = gson.toJson(workloadQueryMap);
-        Path filePath = Paths.get(System.getProperty("user.dir"), "workload", workloadDirectorySubDirName, workloadDirectorySubDirName + "_cache.json");
+    private static String getVmId(String fileName) {
+        return WorkloadIngestionController.getVmId(fileName);
+    }
 
-        try {
-            Files.createDirectories(filePath.getParent());
-            Files.writeString(filePath, json, StandardOpenOption.CREATE_NEW);
-        } catch (IOException e) {
-            e.printStackTrace();
+    /**
+     * Reads all trace files of the run in one parallel pass (see WorkloadIngestionController) and moves every vm onto
+     * the server clock. The result is kept, so the per thread and the per vm view of the same run share one ingestion.
+     **/
+    public static synchronized WorkloadIngestionController.IngestedWorkload getIngestedWorkload(String workloadDirectorySubDirName) {
+        if (workloadDirectorySubDirName.equals(ingestedWorkloadDirectorySubDirName)) {
+            return ingestedWorkload;
         }
+        ingestedWorkload = readIngestedWorkload(workloadDirectorySubDirName);
+        ingestedWorkloadDirectorySubDirName = workloadDirectorySubDirName;
+        return ingestedWorkload;
     }
 
-    private static void saveWorkloadQueriesByVMCache(Map<String, ArrayList<WorkloadQuery>> workloadQueryMap, String workloadDirectorySubDirName) {
-        Gson gson = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
-        String json = gson.toJson(workloadQueryMap);
-        Path filePath = Paths.get(System.getProperty("user.dir"), "workload", workloadDirectorySubDirName, workloadDirectorySubDirName + "_vm_cache.json");
+    // not kept, for callers that read several runs at the same time
+    public static WorkloadIngestionController.IngestedWorkload readIngestedWorkload(String workloadDirectorySubDirName) {
+        Path filePath = Paths.get(System.getProperty("user.dir"), "workload", workloadDirectorySubDirName);
+        WorkloadIngestionController.IngestedWorkload ingestedWorkload = WorkloadIngestionController.ingest(filePath, "run_");
 
-        try {
-            Files.createDirectories(filePath.getParent());
-            Files.writeString(filePath, json, StandardOpenOption.CREATE_NEW);
-        } catch (IOException e) {
-            e.printStackTrace();
+        Map<String, List<ClockOffsetSample>> clockOffsetsByVM = getClockOffsetsByVM(workloadDirectorySubDirName);
+        ingestedWorkload.columnsByVM.forEach((vmKey, workloadColumnsList) -> workloadColumnsList.forEach(workloadColumns -> applyClockOffsets(workloadColumns, clockOffsetsByVM.get(vmKey))));
+
+        System.out.printf("Read %d workloadQueries from %d files of the run at %s\n", ingestedWorkload.queryCount, ingestedWorkload.fileCount, workloadDirectorySubDirName);
+        if (ingestedWorkload.skippedFileCount > 0 || ingestedWorkload.truncatedFileCount > 0) {
+            System.out.printf("Skipped %d unreadable files and used the complete part of %d truncated files of the run at %s\n", ingestedWorkload.skippedFileCount, ingestedWorkload.truncatedFileCount, workloadDirectorySubDirName);
         }
+        return ingestedWorkload;
     }
 
-    private static Map<String, ArrayList<WorkloadQuery>> loadWorkloadQueriesCache(Path pathToCacheFile) {
-        Gson gson = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
-        Map<String, ArrayList<WorkloadQuery>> workloadQueryMap = null;
+    // min, max, mean and the percentiles in milliseconds, in the format of the statistics lines
+    private static String getStatisticsString(LatencyHistogram latencyHistogram) {
+        return String.format("Min value: %f, Max value: %f, Average Value: %f, 25th percentile:%f, 50th percentile:%f, 75th percentile:%f, 90th percentile:%f, 95th percentile:%f, 99th percentile:%f", latencyHistogram.getMinNanos() / 1_000_000d, latencyHistogram.getMaxNanos() / 1_000_000d, latencyHistogram.getMeanNanos() / 1_000_000d, latencyHistogram.getValueAtPercentileInMilliseconds(25), latencyHistogram.getValueAtPercentileInMilliseconds(50), latencyHistogram.getValueAtPercentileInMilliseconds(75), latencyHistogram.getValueAtPercentileInMilliseconds(90), latencyHistogram.getValueAtPercentileInMilliseconds(95), latencyHistogram.getValueAtPercentileInMilliseconds(99));
+    }
 
-        String readedJson = null;
+    public static void writeLatencyHistograms(Path filePath, Map<String, LatencyHistogram> latencyHistogramMap) {
+        List<LatencyHistogramSnapshot> latencyHistogramSnapshotList = new ArrayList<>();
+        latencyHistogramMap.forEach((name, latencyHistogram) -> latencyHistogramSnapshotList.add(latencyHistogram.toSnapshot(name)));
         try {
-            readedJson = Files.readString(pathToCacheFile);
+            Files.writeString(filePath, new Gson().toJson(latencyHistogramSnapshotList));
         } catch (IOException e) {
             e.printStackTrace();
         }
-        Type type = new TypeToken<Map<String, ArrayList<WorkloadQuery>>>(){}.getType();
-        workloadQueryMap = gson.fromJson(readedJson, type);
-
-        System.out.println("loaded cached file " + pathToCacheFile.getFileName().toString());
-        return workloadQueryMap;
     }
 
-    public static Map<String, List<Double>> getLatenciesPerQueryType(List<WorkloadQuery> workloadQueryList) {
-        Map<String, List<Double>> mapOfLatencyPerQueryType = new HashMap<>();
-        mapOfLatencyPerQueryType.put("SELECT", workloadQueryList.stream()
-                .filter(workloadQuery -> workloadQuery.sqlString.contains("SELECT"))
-                .filter(workloadQuery -> !workloadQuery.sqlString.contains("JOIN"))
-                .map(workloadQuery -> getDifferenceOfTimestampsInMilliseconds(workloadQuery.timestampBeforeCommit, workloadQuery.timestampAfterCommit))
-                .collect(Collectors.toList()));
-        mapOfLatencyPerQueryType.put("JOIN", workloadQueryList.stream()
-                .filter(workloadQuery -> workloadQuery.sqlString.contains("JOIN"))
-                .map(workloadQuery -> getDifferenceOfTimestampsInMilliseconds(workloadQuery.timestampBeforeCommit, workloadQuery.timestampAfterCommit))
-                .collect(Collectors.toList()));
-        mapOfLatencyPerQueryType.put("INSERT", workloadQueryList.stream()
-                .filter(workloadQuery -> workloadQuery.sqlString.contains("INSERT"))
-                .map(workloadQuery -> getDifferenceOfTimestampsInMilliseconds(workloadQuery.timestampBeforeCommit, workloadQuery.timestampAfterCommit))
-                .collect(Collectors.toList()));
-        mapOfLatencyPerQueryType.put("UPDATE", workloadQueryList.stream()
-                .filter(workloadQuery -> workloadQuery.sqlString.contains("UPDATE"))
-                .map(workloadQuery -> getDifferenceOfTimestampsInMilliseconds(workloadQuery.timestampBeforeCommit, workloadQuery.timestampAfterCommit))
-                .collect(Collectors.toList()));
-        return mapOfLatencyPerQueryType;
-    }
-
-
 }
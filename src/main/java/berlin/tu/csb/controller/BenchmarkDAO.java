@@ -3,541 +3,407 @@ package berlin.tu.csb.controller;
 import berlin.tu.csb.model.*;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
 
 import javax.sql.DataSource;
 import java.sql.*;
-import java.text.SimpleDateFormat;
 import java.util.*;
-import java.util.Date;
-import java.util.stream.Collectors;
 
 
 class BenchmarkDAO {
 
-    private static final int MAX_RETRY_COUNT = 3;
-    private static final String RETRY_SQL_STATE = "40001";
-    private static final boolean FORCE_RETRY = false;
-    private static final int batchSize = 100;
-    private static final SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH.mm.ss.SSS");
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    // statement texts are constant so the driver can reuse its named server side prepared statement on every pooled connection
+    private static final String SQL_SELECT_ITEMS_BY_IDS = "SELECT * FROM item WHERE i_id = ANY(?)";
+    private static final String SQL_SELECT_ITEMS_ORDERED_BY_PRICE = "SELECT * FROM item ORDER BY i_cost LIMIT ?";
+    private static final String SQL_SELECT_ITEMS_ORDERED_BY_NAME = "SELECT * FROM item ORDER BY i_title LIMIT ?";
+    private static final String SQL_SELECT_ITEMS_WHERE_NAME_CONTAINS = "SELECT * FROM item WHERE i_title LIKE ? LIMIT ?";
+    private static final String SQL_SELECT_CUSTOMERS_WITH_OPEN_ORDERS = "SELECT * FROM customer INNER JOIN orders ON customer.c_id = orders.c_id AND orders.o_status = 'OPEN'";
+    private static final String SQL_UPDATE_ITEM_PRICE = "UPDATE item SET i_srp = ?, i_cost = ? WHERE i_id = ?";
+    private static final String SQL_TRUNCATE_ALL_TABLES = "TRUNCATE TABLE customer CASCADE; TRUNCATE TABLE orders CASCADE; TRUNCATE TABLE item CASCADE; TRUNCATE TABLE order_line CASCADE;";
+
+    // the trace stores a template id instead of the rendered SQL, statements built by the models are registered on first use
+    private static final int TEMPLATE_SELECT_CUSTOMERS_WITH_OPEN_ORDERS = QueryTemplateRegistry.register(SQL_SELECT_CUSTOMERS_WITH_OPEN_ORDERS);
+    private static final int TEMPLATE_UPDATE_ITEM_PRICE = QueryTemplateRegistry.register(SQL_UPDATE_ITEM_PRICE);
+    private static final int TEMPLATE_TRUNCATE_ALL_TABLES = QueryTemplateRegistry.register(SQL_TRUNCATE_ALL_TABLES);
+    private static final int TEMPLATE_INSERT_ORDER_WITH_ORDER_LINES = QueryTemplateRegistry.register(new Order().getSQLInsertString() + "; " + new OrderLine().getSQLInsertString());
 
     SeededRandomHelper seededRandomHelper = new SeededRandomHelper();
 
-    public List<String> sqlLog;
+    public Map<String, LoadThroughput> loadThroughputMap = new LinkedHashMap<>();
     private WorkloadQueryController workloadQueryController;
+    AdaptiveBatchSizeController adaptiveBatchSizeController;
+    // every operation of this DAO runs through the executor, it owns connection checkout, retries and their statistics
+    TransactionExecutor transactionExecutor;
+    private final SqlDebugSampler sqlDebugSampler;
 
     public static Logger logger = LogManager.getLogger(BenchmarkDAO.class);
 
-    private final DataSource ds;
-
-    BenchmarkDAO(DataSource ds, WorkloadQueryController workloadQueryController) {
-        this.ds = ds;
+    BenchmarkDAO(DataSource ds, WorkloadQueryController workloadQueryController, BenchmarkConfig benchmarkConfig) {
         this.workloadQueryController = workloadQueryController;
-        this.sqlLog = new ArrayList<>();
-        try (Connection connection = ds.getConnection()) {
-            try (Statement st = connection.createStatement()) {
-                st.execute("SET default_transaction_use_follower_reads = true;");
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        this.adaptiveBatchSizeController = new AdaptiveBatchSizeController(benchmarkConfig);
+        this.transactionExecutor = new TransactionExecutor(ds, workloadQueryController, benchmarkConfig);
+        this.sqlDebugSampler = new SqlDebugSampler(benchmarkConfig.sqlDebugSampleEveryNthStatement);
+        // session settings are applied by the connection pool (BenchmarkConfig.connectionInitSql) to every pooled connection
     }
 
-    public boolean insertSingleObjectToDB(DatabaseTableModel databaseTableModel) {
-        try (Connection connection = ds.getConnection()) {
-            int retryCount = 0;
-            while (retryCount <= MAX_RETRY_COUNT) {
-                try (PreparedStatement pstmt = connection.prepareStatement(databaseTableModel.getSQLInsertString())) {
+    interface StatementParameterSetter {
+        void setParameters(PreparedStatement preparedStatement) throws SQLException;
+    }
 
-                    databaseTableModel.fillStatement(pstmt);
-                    sqlLog.add(pstmt.toString());
-                    logger.trace(pstmt.toString());
+    private static void setUUID(PreparedStatement preparedStatement, int parameterIndex, String uuid) throws SQLException {
+        preparedStatement.setObject(parameterIndex, UUID.fromString(uuid));
+    }
+
+    // identifies the accessed row without keeping its values in the trace
+    private static int getParameterHash(String value) {
+        return value == null ? 0 : value.hashCode();
+    }
+
+    private static int getParameterHash(DatabaseTableModel databaseTableModel) {
+        return getParameterHash(databaseTableModel.getPrimaryKeyNameAndValue().getValue());
+    }
+
+    // counts the statement for the current operation, the SQL is only rendered if the debug sampler picks it
+    private void logStatement(Object statement) {
+        transactionExecutor.countStatement();
+        sqlDebugSampler.sample(statement);
+    }
 
+    private static void logError(String operationName, Class<?> modelClass, SQLException e) {
+        logger.error(String.format("BenchmarkDAO.%s of instance %s ERROR: { state => %s, cause => %s, message => %s }\n", operationName, modelClass, e.getSQLState(), e.getCause(), e.getMessage()));
+    }
 
-                    Date now = new Date(System.currentTimeMillis());
-                    String timestampBeforeCommit = sdf.format(now);
+    public boolean insertSingleObjectToDB(DatabaseTableModel databaseTableModel) {
+        int templateId = QueryTemplateRegistry.register(databaseTableModel.getSQLInsertString());
+        try {
+            return transactionExecutor.execute("insertSingleObjectToDB." + databaseTableModel.getTableName(), connection -> {
+                try (PreparedStatement pstmt = connection.prepareStatement(databaseTableModel.getSQLInsertString())) {
+                    databaseTableModel.fillStatement(pstmt);
+                    logStatement(pstmt);
+                    logger.trace("{}", pstmt);
 
+                    long startNanos = System.nanoTime();
                     pstmt.execute();
+                    long endNanos = System.nanoTime();
 
-                    now = new Date(System.currentTimeMillis());
-                    String timestampAfterCommit = sdf.format(now);
-
-                    workloadQueryController.add(pstmt.toString(), timestampBeforeCommit, timestampAfterCommit);
-
-                    pstmt.close();
-                    connection.close();
-                    break;
-                } catch (SQLException e) {
-                    logger.error(String.format("BenchmarkDAO.insertSingleObjectToDB of instance %s ERROR: { state => %s, cause => %s, message => %s }\n", databaseTableModel.getClass(), e.getSQLState(), e.getCause(), e.getMessage()));
-                    if (RETRY_SQL_STATE.equals(e.getSQLState())) {
-                        // Since this is a transaction retry error, we
-                        // roll back the transaction and sleep a
-                        // little before trying again.  Each time
-                        // through the loop we sleep for a little
-                        // longer than the last time
-                        // (A.K.A. exponential backoff).
-                        logger.trace(String.format("retryable exception occurred:\n    sql state = [%s]\n    message = [%s]\n    retry counter = %s\n", e.getSQLState(), e.getMessage(), retryCount));
-                        connection.rollback();
-                        retryCount++;
-                        int sleepMillis = (int) (Math.pow(2, retryCount) * 100 + new Random().nextInt(100));
-                        System.out.printf("Hit 40001 transaction retry error, sleeping %s milliseconds\n", sleepMillis);
-                        try {
-                            Thread.sleep(sleepMillis);
-                        } catch (InterruptedException ignored) {
-                            // Necessary to allow the Thread.sleep()
-                            // above so the retry loop can continue.
-                        }
-                        if(retryCount > MAX_RETRY_COUNT) {
-                            return false;
-                        }
-                    }
-                    else {
-                        break;
-                    }
+                    workloadQueryController.add(templateId, getParameterHash(databaseTableModel), startNanos, endNanos);
+                    return true;
                 }
-            }
+            });
         } catch (SQLException e) {
-            System.out.printf("BenchmarkDAO.insertSingleObjectIntoDB of instance %s ERROR: { state => %s, cause => %s, message => %s }\n",
-                    databaseTableModel.getClass(), e.getSQLState(), e.getCause(), e.getMessage());
+            logError("insertSingleObjectToDB", databaseTableModel.getClass(), e);
             return false;
         }
-        return true;
     }
 
     public boolean bulkInsertObjectsToDB(List<? extends DatabaseTableModel> databaseTableModelList) {
-        try (Connection connection = ds.getConnection()) {
-
-            // We're managing the commit lifecycle ourselves so we can
-            // control the size of our batch inserts.
-            connection.setAutoCommit(false);
-            int retryCount = 0;
-
-            while (retryCount <= MAX_RETRY_COUNT) {
-                try (PreparedStatement pstmt = connection.prepareStatement(databaseTableModelList.get(0).getSQLInsertString())) {
-                    List<WorkloadQuery> workloadQueryListNotCommitted = new ArrayList<>();
-                    int counter = 0;
-                    for (DatabaseTableModel databaseTableModel : databaseTableModelList) {
-                        counter++;
-                        databaseTableModel.fillStatement(pstmt);
-                        sqlLog.add(pstmt.toString());
-                        logger.trace(pstmt.toString());
-
-                        pstmt.addBatch();
-                        // its a little bit trickier to track the commit time here
-                        Date now = new Date(System.currentTimeMillis());
-                        String timestampBeforeCommit = sdf.format(now);
-
-                        WorkloadQuery workloadQueryNotCommitted = new WorkloadQuery();
-                        workloadQueryNotCommitted.timestampBeforeCommit = timestampBeforeCommit;
-                        workloadQueryNotCommitted.sqlString = pstmt.toString();
-                        workloadQueryListNotCommitted.add(workloadQueryNotCommitted);
-
-                        if (counter % batchSize == 0 || counter == databaseTableModelList.size()) {
-                            int[] count = pstmt.executeBatch();
-
-                            now = new Date(System.currentTimeMillis());
-                            String timestampAfterCommit = sdf.format(now);
+        // Every chunk is its own transaction, so a retry error only replays the failed chunk.
+        String tableName = databaseTableModelList.get(0).getTableName();
+        String operationName = "bulkInsertObjectsToDB." + tableName;
+        int templateId = QueryTemplateRegistry.register(databaseTableModelList.get(0).getSQLInsertString());
+        int offset = 0;
+
+        try {
+            while (offset < databaseTableModelList.size()) {
+                int chunkOffset = offset;
+                BulkInsertChunk bulkInsertChunk = transactionExecutor.executeInTransaction(operationName, connection -> {
+                    if (transactionExecutor.getCurrentAttempt() > 1) {
+                        // retry the failed chunk with a smaller size starting at the same row
+                        adaptiveBatchSizeController.onChunkRetry();
+                    }
+                    int chunkSize = Math.min(adaptiveBatchSizeController.getBatchSize(), databaseTableModelList.size() - chunkOffset);
+                    List<? extends DatabaseTableModel> chunk = databaseTableModelList.subList(chunkOffset, chunkOffset + chunkSize);
+
+                    try (PreparedStatement pstmt = connection.prepareStatement(chunk.get(0).getSQLInsertString())) {
+                        BulkInsertChunk newBulkInsertChunk = new BulkInsertChunk(chunkSize);
+                        for (DatabaseTableModel databaseTableModel : chunk) {
+                            databaseTableModel.fillStatement(pstmt);
+                            logStatement(pstmt);
+                            logger.trace("{}", pstmt);
+
+                            pstmt.addBatch();
+                            // its a little bit trickier to track the commit time here
+                            WorkloadQuery workloadQueryNotCommitted = new WorkloadQuery();
+                            workloadQueryNotCommitted.startNanos = System.nanoTime();
+                            workloadQueryNotCommitted.templateId = templateId;
+                            workloadQueryNotCommitted.parameterHash = getParameterHash(databaseTableModel);
+                            newBulkInsertChunk.workloadQueryListNotCommitted.add(workloadQueryNotCommitted);
+                        }
 
-                            // after commit, go for each previously saved object and add it to the actual list with the commit timestamp
-                            workloadQueryListNotCommitted.forEach(workloadQuery -> {
-                                workloadQueryController.add(workloadQuery.sqlString, workloadQuery.timestampBeforeCommit, timestampAfterCommit);
-                            });
+                        newBulkInsertChunk.commitStartNanos = System.nanoTime();
+                        int[] count = pstmt.executeBatch();
 
-                            workloadQueryListNotCommitted.clear();
+                        logger.trace(String.format("\nBenchmarkDAO.bulkInsertObjectsToDB:\n    '%s'\n", pstmt));
+                        logger.trace(String.format("    => %s row(s) in this chunk\n", count.length));
+                        return newBulkInsertChunk;
+                    }
+                });
 
+                // the executor committed the chunk, so the records are added with the commit timestamp now
+                long endNanos = System.nanoTime();
+                long commitLatencyNanos = endNanos - bulkInsertChunk.commitStartNanos;
+                bulkInsertChunk.workloadQueryListNotCommitted.forEach(workloadQuery -> {
+                    workloadQueryController.add(workloadQuery.templateId, workloadQuery.parameterHash, workloadQuery.startNanos, endNanos);
+                });
 
-                            logger.trace(String.format("\nBenchmarkDAO.bulkInsertObjectsToDB:\n    '%s'\n", pstmt));
-                            logger.trace(String.format("    => %s row(s) updated in this batch\n", count.length));
-                        }
-                    }
-                    connection.commit();
-                    pstmt.close();
-                    connection.close();
-                    break;
-                } catch (SQLException e) {
-                    logger.error(String.format("BenchmarkDAO.bulkInsertObjectsToDB of instance %s ERROR: { state => %s, cause => %s, message => %s }\n", databaseTableModelList.get(0).getClass(), e.getSQLState(), e.getCause(), e.getMessage()));
-                    if (RETRY_SQL_STATE.equals(e.getSQLState())) {
-                        // Since this is a transaction retry error, we
-                        // roll back the transaction and sleep a
-                        // little before trying again.  Each time
-                        // through the loop we sleep for a little
-                        // longer than the last time
-                        // (A.K.A. exponential backoff).
-                        logger.trace(String.format("retryable exception occurred:\n    sql state = [%s]\n    message = [%s]\n    retry counter = %s\n", e.getSQLState(), e.getMessage(), retryCount));
-                        connection.rollback();
-                        retryCount++;
-                        int sleepMillis = (int) (Math.pow(2, retryCount) * 100 + new Random().nextInt(100));
-                        System.out.printf("Hit 40001 transaction retry error, sleeping %s milliseconds\n", sleepMillis);
-                        try {
-                            Thread.sleep(sleepMillis);
-                        } catch (InterruptedException ignored) {
-                            // Necessary to allow the Thread.sleep()
-                            // above so the retry loop can continue.
-                        }
-                        if(retryCount > MAX_RETRY_COUNT) {
-                            return false;
-                        }
-                    }
-                    else {
-                        break;
-                    }
-                }
+                adaptiveBatchSizeController.onChunkCommitted(tableName, bulkInsertChunk.size, commitLatencyNanos, transactionExecutor.getCurrentAttempt() - 1);
+                offset += bulkInsertChunk.size;
             }
         } catch (SQLException e) {
-            logger.error(String.format("BenchmarkDAO.bulkInsertObjectsToDB of instance %s ERROR: { state => %s, cause => %s, message => %s }\n",
-                    databaseTableModelList.get(0).getClass(), e.getSQLState(), e.getCause(), e.getMessage()));
+            logError("bulkInsertObjectsToDB", databaseTableModelList.get(0).getClass(), e);
             return false;
         }
         return true;
     }
 
-    public DatabaseTableModel getSingleObjectFromDB(DatabaseTableModel databaseTableModel) {
-        DatabaseTableModel updatedObject = null;
-        try (Connection connection = ds.getConnection()) {
-            int retryCount = 0;
-            while (retryCount <= MAX_RETRY_COUNT) {
-                try {
-
-                    Statement statement = connection.createStatement();
-                    String sqlStatement = String.format(databaseTableModel.getBasicSQLSelfSelectString());
-                    sqlLog.add(sqlStatement);
-                    logger.trace(sqlStatement);
-
-
-
-                    Date now = new Date(System.currentTimeMillis());
-                    String timestampBeforeCommit = sdf.format(now);
-
-                    ResultSet rs = statement.executeQuery(sqlStatement);
-
-                    now = new Date(System.currentTimeMillis());
-                    String timestampAfterCommit = sdf.format(now);
-
-                    workloadQueryController.add(sqlStatement, timestampBeforeCommit, timestampAfterCommit);
-
+    private static class BulkInsertChunk {
+        final int size;
+        final List<WorkloadQuery> workloadQueryListNotCommitted = new ArrayList<>();
+        long commitStartNanos;
 
+        BulkInsertChunk(int size) {
+            this.size = size;
+        }
+    }
 
-                    while (rs.next()) {
-                        // get the implementing class of the interfaces object given to this method and create a new object of the same type and fill it afterwards
-                        updatedObject = databaseTableModel.getClass().getDeclaredConstructor().newInstance();
-                        updatedObject.initWithResultSet(rs);
+    // Inserts the order and all of its order lines in one transaction, recorded as a single business operation in the trace
+    public boolean insertOrderWithOrderLinesToDB(Order order, List<OrderLine> orderLineList) {
+        try {
+            WorkloadQuery workloadQueryNotCommitted = transactionExecutor.executeInTransaction("insertOrderWithOrderLinesToDB.orders", connection -> {
+                try (PreparedStatement orderStatement = connection.prepareStatement(order.getSQLInsertString());
+                     PreparedStatement orderLineStatement = connection.prepareStatement(new OrderLine().getSQLInsertString())) {
+                    order.fillStatement(orderStatement);
+                    logStatement(orderStatement);
+                    logger.trace("{}", orderStatement);
+
+                    WorkloadQuery workloadQuery = new WorkloadQuery();
+                    workloadQuery.startNanos = System.nanoTime();
+                    orderStatement.execute();
+
+                    // the driver rewrites the batch into one multi row INSERT (reWriteBatchedInserts), so all lines take one round trip
+                    for (OrderLine orderLine : orderLineList) {
+                        orderLine.fillStatement(orderLineStatement);
+                        logStatement(orderLineStatement);
+                        logger.trace("{}", orderLineStatement);
+                        orderLineStatement.addBatch();
                     }
-                    rs.close();
-                    statement.close();
-                    connection.close();
-                    break;
-                } catch (SQLException e) {
-                    logger.error(String.format("BenchmarkDAO.getSingleObjectFromDB of instance %s ERROR: { state => %s, cause => %s, message => %s }\n", databaseTableModel.getClass(), e.getSQLState(), e.getCause(), e.getMessage()));
-                    if (RETRY_SQL_STATE.equals(e.getSQLState())) {
-                        // Since this is a transaction retry error, we
-                        // roll back the transaction and sleep a
-                        // little before trying again.  Each time
-                        // through the loop we sleep for a little
-                        // longer than the last time
-                        // (A.K.A. exponential backoff).
-                        logger.trace(String.format("retryable exception occurred:\n    sql state = [%s]\n    message = [%s]\n    retry counter = %s\n", e.getSQLState(), e.getMessage(), retryCount));
-                        connection.rollback();
-                        retryCount++;
-                        int sleepMillis = (int) (Math.pow(2, retryCount) * 100 + new Random().nextInt(100));
-                        System.out.printf("Hit 40001 transaction retry error, sleeping %s milliseconds\n", sleepMillis);
-                        try {
-                            Thread.sleep(sleepMillis);
-                        } catch (InterruptedException ignored) {
-                            // Necessary to allow the Thread.sleep()
-                            // above so the retry loop can continue.
-                        }
-                        if(retryCount > MAX_RETRY_COUNT) {
-                            logger.error("MAX_RETRY_COUNT arrived. It is no longer tried to execute this query: " + databaseTableModel.getBasicSQLSelfSelectString());
-                            return null;
-                        }
+                    if (!orderLineList.isEmpty()) {
+                        orderLineStatement.executeBatch();
                     }
-                } catch (Exception e) {
-                    logger.error(String.format("!THIS EXCEPTION SHOULD NOT BE TRIGGERED! BenchmarkDAO.getSingleObjectFromDB of instance %s ERROR: { cause => %s, message => %s }\n", databaseTableModel.getClass(), e.getCause(), e.getMessage()));
-                    retryCount++;
+                    return workloadQuery;
                 }
-            }
+            });
 
+            // the executor committed the transaction, so the record gets the commit timestamp now
+            workloadQueryController.add(TEMPLATE_INSERT_ORDER_WITH_ORDER_LINES, getParameterHash(order), workloadQueryNotCommitted.startNanos, System.nanoTime());
+            return true;
         } catch (SQLException e) {
-            System.out.printf("BenchmarkDAO.getSingleObjectFromDB of instance %s ERROR: { state => %s, cause => %s, message => %s }\n",
-                    databaseTableModel.getClass(), e.getSQLState(), e.getCause(), e.getMessage());
+            logError("insertOrderWithOrderLinesToDB", Order.class, e);
+            return false;
         }
-        return updatedObject;
     }
 
-    public List<? extends DatabaseTableModel> getAllOfObjectTypeFromDB(DatabaseTableModel databaseTableModel, String additionalSQLCondition) {
-        List<DatabaseTableModel> databaseTableModelList = new ArrayList<>();
-
-
-        try (Connection connection = ds.getConnection()) {
-            int retryCount = 0;
-            while (retryCount <= MAX_RETRY_COUNT) {
-                try {
-                    Statement statement = connection.createStatement();
-                    String sqlStatement = String.format("%s %s", databaseTableModel.getBasicSQLAllSelectString(), additionalSQLCondition);
-                    sqlLog.add(sqlStatement);
-                    logger.trace(sqlStatement);
-
-                    Date now = new Date(System.currentTimeMillis());
-                    String timestampBeforeCommit = sdf.format(now);
-
-                    ResultSet rs = statement.executeQuery(sqlStatement);
+    // Streams the rows of the iterator through COPY ... FROM STDIN without materializing them in a list or a JDBC batch
+    public boolean copyObjectsToDB(DatabaseTableModel databaseTableModel, Iterator<? extends DatabaseTableModel> databaseTableModelIterator) {
+        String sqlStatement = databaseTableModel.getSQLCopyString();
+        int templateId = QueryTemplateRegistry.register(sqlStatement);
+        try {
+            // the iterator can only be consumed once, so a failed COPY can not be replayed
+            return transactionExecutor.executeWithoutRetry("copyObjectsToDB." + databaseTableModel.getTableName(), connection -> {
+                CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+                CopyRowBuilder copyRowBuilder = new CopyRowBuilder();
+                long bytes = 0;
 
-                    now = new Date(System.currentTimeMillis());
-                    String timestampAfterCommit = sdf.format(now);
+                logStatement(sqlStatement);
+                logger.trace(sqlStatement);
 
-                    workloadQueryController.add(sqlStatement, timestampBeforeCommit, timestampAfterCommit);
+                long startNanos = System.nanoTime();
 
-                    while (rs.next()) {
-                        // get the implementing class of the interfaces object given to this method and create a new object of the same type and fill it afterwards
-                        DatabaseTableModel readDatabaseTableModel = databaseTableModel.getClass().getDeclaredConstructor().newInstance();
-                        readDatabaseTableModel.initWithResultSet(rs);
-                        databaseTableModelList.add(readDatabaseTableModel);
-                    }
-                    rs.close();
-                    statement.close();
-                    connection.close();
-                    break;
-
-                } catch (SQLException e) {
-                    logger.error(String.format("BenchmarkDAO.getAllOfObjectTypeFromDB of instance %s ERROR: { state => %s, cause => %s, message => %s }\n", databaseTableModel.getClass(), e.getSQLState(), e.getCause(), e.getMessage()));
-                    if (RETRY_SQL_STATE.equals(e.getSQLState())) {
-                        // Since this is a transaction retry error, we
-                        // roll back the transaction and sleep a
-                        // little before trying again.  Each time
-                        // through the loop we sleep for a little
-                        // longer than the last time
-                        // (A.K.A. exponential backoff).
-                        logger.trace(String.format("retryable exception occurred:\n    sql state = [%s]\n    message = [%s]\n    retry counter = %s\n", e.getSQLState(), e.getMessage(), retryCount));
-                        connection.rollback();
-                        retryCount++;
-                        int sleepMillis = (int) (Math.pow(2, retryCount) * 100 + new Random().nextInt(100));
-                        System.out.printf("Hit 40001 transaction retry error, sleeping %s milliseconds\n", sleepMillis);
-                        try {
-                            Thread.sleep(sleepMillis);
-                        } catch (InterruptedException ignored) {
-                            // Necessary to allow the Thread.sleep()
-                            // above so the retry loop can continue.
-                        }
-                        if(retryCount > MAX_RETRY_COUNT) {
-                            logger.error("MAX_RETRY_COUNT arrived. It is no longer tried to execute this query: " + databaseTableModel.getBasicSQLSelfSelectString());
-                            return null;
+                CopyIn copyIn = copyManager.copyIn(sqlStatement);
+                try {
+                    while (databaseTableModelIterator.hasNext()) {
+                        databaseTableModelIterator.next().appendCopyRow(copyRowBuilder);
+                        if (copyRowBuilder.length() >= COPY_BUFFER_SIZE) {
+                            byte[] rowBytes = copyRowBuilder.drainBytes();
+                            copyIn.writeToCopy(rowBytes, 0, rowBytes.length);
+                            bytes += rowBytes.length;
                         }
                     }
+                    byte[] rowBytes = copyRowBuilder.drainBytes();
+                    copyIn.writeToCopy(rowBytes, 0, rowBytes.length);
+                    bytes += rowBytes.length;
+                    long rows = copyIn.endCopy();
+
+                    long endNanos = System.nanoTime();
+                    long durationNanos = endNanos - startNanos;
+
+                    workloadQueryController.add(templateId, 0, startNanos, endNanos);
+
+                    LoadThroughput loadThroughput = loadThroughputMap.computeIfAbsent(databaseTableModel.getTableName(), tableName -> {
+                        LoadThroughput newLoadThroughput = new LoadThroughput();
+                        newLoadThroughput.tableName = tableName;
+                        newLoadThroughput.workloadContextId = Thread.currentThread().getId();
+                        return newLoadThroughput;
+                    });
+                    loadThroughput.rows += rows;
+                    loadThroughput.bytes += bytes;
+                    loadThroughput.durationNanos += durationNanos;
+                    logger.info(String.format("Copied %d rows (%.2f MB) into %s at %.0f rows/s and %.2f MB/s", rows, bytes / (1024d * 1024d), databaseTableModel.getTableName(), rows / (durationNanos / 1_000_000_000d), (bytes / (1024d * 1024d)) / (durationNanos / 1_000_000_000d)));
+                    return true;
+                } finally {
+                    if (copyIn.isActive()) {
+                        copyIn.cancelCopy();
+                    }
                 }
-                catch (Exception e) {
-                    System.err.println(e.getClass().getName() + ": " + e.getMessage());
-                }
-            }
+            });
         } catch (SQLException e) {
-            System.out.printf("BenchmarkDAO.getAllOfObjectTypeFromDB of instance %s ERROR: { state => %s, cause => %s, message => %s }\n",
-                    databaseTableModel.getClass(), e.getSQLState(), e.getCause(), e.getMessage());
+            logError("copyObjectsToDB", databaseTableModel.getClass(), e);
+            return false;
         }
-        return databaseTableModelList;
     }
 
-    public List<? extends DatabaseTableModel> getForeignObjectsByObjectPrimaryKeyFromDB(DatabaseTableModel primaryKeyTableModel, DatabaseTableModel requestedTableModel) {
-        List<DatabaseTableModel> databaseTableModelList = new ArrayList<>();
-
-
-        try (Connection connection = ds.getConnection()) {
-            int retryCount = 0;
-            while (retryCount <= MAX_RETRY_COUNT) {
-                try {
-                    Statement statement = connection.createStatement();
-                    String sqlStatement = String.format("%s WHERE %s = '%s';", requestedTableModel.getBasicSQLAllSelectString(), primaryKeyTableModel.getPrimaryKeyNameAndValue().getKey(), primaryKeyTableModel.getPrimaryKeyNameAndValue().getValue());
-                    sqlLog.add(sqlStatement);
-                    logger.trace(sqlStatement);
-
-                    Date now = new Date(System.currentTimeMillis());
-                    String timestampBeforeCommit = sdf.format(now);
-
-                    ResultSet rs = statement.executeQuery(sqlStatement);
+    public DatabaseTableModel getSingleObjectFromDB(DatabaseTableModel databaseTableModel) {
+        String sqlStatement = databaseTableModel.getSQLSelfSelectTemplate();
+        int templateId = QueryTemplateRegistry.register(sqlStatement);
+        try {
+            return transactionExecutor.execute("getSingleObjectFromDB." + databaseTableModel.getTableName(), connection -> {
+                try (PreparedStatement pstmt = connection.prepareStatement(sqlStatement)) {
+                    setUUID(pstmt, 1, databaseTableModel.getPrimaryKeyNameAndValue().getValue());
+                    logStatement(pstmt);
+                    logger.trace("{}", pstmt);
+
+                    long startNanos = System.nanoTime();
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        long endNanos = System.nanoTime();
+                        workloadQueryController.add(templateId, getParameterHash(databaseTableModel), startNanos, endNanos);
+
+                        List<? extends DatabaseTableModel> databaseTableModelList = RowMapperRegistry.getRowMapper(databaseTableModel).mapAll(rs);
+                        transactionExecutor.countRows(databaseTableModelList.size());
+                        return databaseTableModelList.isEmpty() ? null : databaseTableModelList.get(databaseTableModelList.size() - 1);
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            logError("getSingleObjectFromDB", databaseTableModel.getClass(), e);
+            return null;
+        }
+    }
 
-                    now = new Date(System.currentTimeMillis());
-                    String timestampAfterCommit = sdf.format(now);
+    public List<? extends DatabaseTableModel> getAllOfObjectTypeFromDB(DatabaseTableModel databaseTableModel, String sqlStatement, StatementParameterSetter statementParameterSetter) {
+        int templateId = QueryTemplateRegistry.register(sqlStatement);
+        try {
+            return transactionExecutor.execute("getAllOfObjectTypeFromDB." + databaseTableModel.getTableName(), connection -> {
+                try (PreparedStatement pstmt = connection.prepareStatement(sqlStatement)) {
+                    statementParameterSetter.setParameters(pstmt);
+                    logStatement(pstmt);
+                    logger.trace("{}", pstmt);
 
-                    workloadQueryController.add(sqlStatement, timestampBeforeCommit, timestampAfterCommit);
+                    return executeQueryAndReadAll(pstmt, templateId, 0, databaseTableModel);
+                }
+            });
+        } catch (SQLException e) {
+            logError("getAllOfObjectTypeFromDB", databaseTableModel.getClass(), e);
+            return new ArrayList<>();
+        }
+    }
 
-                    while (rs.next()) {
-                        // get the implementing class of the interfaces object given to this method and create a new object of the same type and fill it afterwards
-                        DatabaseTableModel readDatabaseTableModel = requestedTableModel.getClass().getDeclaredConstructor().newInstance();
-                        readDatabaseTableModel.initWithResultSet(rs);
-                        databaseTableModelList.add(readDatabaseTableModel);
-                    }
-                    rs.close();
-                    statement.close();
-                    connection.close();
-                    break;
-                } catch (SQLException e) {
-                    logger.error(String.format("BenchmarkDAO.getForeignObjectsByObjectPrimaryKeyFromDB of instance %s ERROR: { state => %s, cause => %s, message => %s }\n", requestedTableModel.getClass(), e.getSQLState(), e.getCause(), e.getMessage()));
-                    if (RETRY_SQL_STATE.equals(e.getSQLState())) {
-                        // Since this is a transaction retry error, we
-                        // roll back the transaction and sleep a
-                        // little before trying again.  Each time
-                        // through the loop we sleep for a little
-                        // longer than the last time
-                        // (A.K.A. exponential backoff).
-                        logger.trace(String.format("retryable exception occurred:\n    sql state = [%s]\n    message = [%s]\n    retry counter = %s\n", e.getSQLState(), e.getMessage(), retryCount));
-                        connection.rollback();
-                        retryCount++;
-                        int sleepMillis = (int) (Math.pow(2, retryCount) * 100 + new Random().nextInt(100));
-                        System.out.printf("Hit 40001 transaction retry error, sleeping %s milliseconds\n", sleepMillis);
-                        try {
-                            Thread.sleep(sleepMillis);
-                        } catch (InterruptedException ignored) {
-                            // Necessary to allow the Thread.sleep()
-                            // above so the retry loop can continue.
-                        }
-                        if(retryCount > MAX_RETRY_COUNT) {
-                            logger.error("MAX_RETRY_COUNT arrived. It is no longer tried to execute this query: " + requestedTableModel.getBasicSQLSelfSelectString());
-                            return null;
-                        }
-                    }
-                } catch (Exception e) {
-                    System.err.println(e.getClass().getName() + ": " + e.getMessage());
-                    System.exit(0);
+    public List<? extends DatabaseTableModel> getForeignObjectsByObjectPrimaryKeyFromDB(DatabaseTableModel primaryKeyTableModel, DatabaseTableModel requestedTableModel) {
+        AbstractMap.SimpleEntry<String, String> primaryKeyNameAndValue = primaryKeyTableModel.getPrimaryKeyNameAndValue();
+        String sqlStatement = requestedTableModel.getSQLSelectByForeignKeyTemplate(primaryKeyNameAndValue.getKey());
+        int templateId = QueryTemplateRegistry.register(sqlStatement);
+        try {
+            return transactionExecutor.execute("getForeignObjectsByObjectPrimaryKeyFromDB." + requestedTableModel.getTableName(), connection -> {
+                try (PreparedStatement pstmt = connection.prepareStatement(sqlStatement)) {
+                    setUUID(pstmt, 1, primaryKeyNameAndValue.getValue());
+                    logStatement(pstmt);
+                    logger.trace("{}", pstmt);
+
+                    return executeQueryAndReadAll(pstmt, templateId, getParameterHash(primaryKeyNameAndValue.getValue()), requestedTableModel);
                 }
-            }
+            });
         } catch (SQLException e) {
-            System.out.printf("BenchmarkDAO.getForeignObjectsByObjectPrimaryKeyFromDB of instance %s ERROR: { state => %s, cause => %s, message => %s }\n",
-                    requestedTableModel.getClass(), e.getSQLState(), e.getCause(), e.getMessage());
+            logError("getForeignObjectsByObjectPrimaryKeyFromDB", requestedTableModel.getClass(), e);
+            return new ArrayList<>();
         }
-        return databaseTableModelList;
     }
 
+    private List<? extends DatabaseTableModel> executeQueryAndReadAll(PreparedStatement pstmt, int templateId, int parameterHash, DatabaseTableModel databaseTableModel) throws SQLException {
+        long startNanos = System.nanoTime();
+        try (ResultSet rs = pstmt.executeQuery()) {
+            long endNanos = System.nanoTime();
+            workloadQueryController.add(templateId, parameterHash, startNanos, endNanos);
 
-    public boolean updateItemPriceToDB(Item item) {
-        try (Connection connection = ds.getConnection()) {
-            int retryCount = 0;
-            while (retryCount <= MAX_RETRY_COUNT) {
-                try (PreparedStatement pstmt = connection.prepareStatement(String.format(Locale.US, "UPDATE item SET i_srp = %.2f, i_cost = %.2f WHERE i_id = '%s'", item.i_srp, item.i_cost, item.i_id))) {
+            List<? extends DatabaseTableModel> databaseTableModelList = RowMapperRegistry.getRowMapper(databaseTableModel).mapAll(rs);
+            transactionExecutor.countRows(databaseTableModelList.size());
+            return databaseTableModelList;
+        }
+    }
 
-                    sqlLog.add(pstmt.toString());
-                    logger.trace(pstmt.toString());
 
+    public boolean updateItemPriceToDB(Item item) {
+        try {
+            return transactionExecutor.execute("updateItemPriceToDB.item", connection -> {
+                try (PreparedStatement pstmt = connection.prepareStatement(SQL_UPDATE_ITEM_PRICE)) {
+                    pstmt.setFloat(1, item.i_srp);
+                    pstmt.setFloat(2, item.i_cost);
+                    setUUID(pstmt, 3, item.i_id);
 
-                    Date now = new Date(System.currentTimeMillis());
-                    String timestampBeforeCommit = sdf.format(now);
+                    logStatement(pstmt);
+                    logger.trace("{}", pstmt);
 
+                    long startNanos = System.nanoTime();
                     pstmt.execute();
+                    long endNanos = System.nanoTime();
 
-                    now = new Date(System.currentTimeMillis());
-                    String timestampAfterCommit = sdf.format(now);
-
-                    workloadQueryController.add(pstmt.toString(), timestampBeforeCommit, timestampAfterCommit);
-
-                    pstmt.close();
-                    connection.close();
-                    break;
-                } catch (SQLException e) {
-                    logger.error(String.format("BenchmarkDAO.updateItemPriceToDB ERROR: { state => %s, cause => %s, message => %s }\n", e.getSQLState(), e.getCause(), e.getMessage()));
-                    if (RETRY_SQL_STATE.equals(e.getSQLState())) {
-                        // Since this is a transaction retry error, we
-                        // roll back the transaction and sleep a
-                        // little before trying again.  Each time
-                        // through the loop we sleep for a little
-                        // longer than the last time
-                        // (A.K.A. exponential backoff).
-                        logger.trace(String.format("retryable exception occurred:\n    sql state = [%s]\n    message = [%s]\n    retry counter = %s\n", e.getSQLState(), e.getMessage(), retryCount));
-                        connection.rollback();
-                        retryCount++;
-                        int sleepMillis = (int) (Math.pow(2, retryCount) * 100 + new Random().nextInt(100));
-                        System.out.printf("Hit 40001 transaction retry error, sleeping %s milliseconds\n", sleepMillis);
-                        try {
-                            Thread.sleep(sleepMillis);
-                        } catch (InterruptedException ignored) {
-                            // Necessary to allow the Thread.sleep()
-                            // above so the retry loop can continue.
-                        }
-                        if(retryCount > MAX_RETRY_COUNT) {
-                            return false;
-                        }
-                    }
-                    else {
-                        break;
-                    }
+                    workloadQueryController.add(TEMPLATE_UPDATE_ITEM_PRICE, getParameterHash(item.i_id), startNanos, endNanos);
+                    return true;
                 }
-            }
+            });
         } catch (SQLException e) {
-            System.out.printf("BenchmarkDAO.updateItemPriceToDB ERROR: { state => %s, cause => %s, message => %s }\n",
-                    e.getSQLState(), e.getCause(), e.getMessage());
+            logError("updateItemPriceToDB", Item.class, e);
             return false;
         }
-        return true;
     }
 
     public List<Customer> getAllCustomersWithOpenOrders() {
-        List<Customer> customerList = new ArrayList<>();
-        try (Connection connection = ds.getConnection()) {
-            int retryCount = 0;
-            while (retryCount <= MAX_RETRY_COUNT) {
-                String sqlStatement = "";
-                try {
-                    Statement statement = connection.createStatement();
-                    sqlStatement = String.format("SELECT * FROM customer INNER JOIN orders ON customer.c_id = orders.c_id AND orders.o_status = 'OPEN'");
-                    sqlLog.add(sqlStatement);
+        String sqlStatement = SQL_SELECT_CUSTOMERS_WITH_OPEN_ORDERS;
+        try {
+            return transactionExecutor.execute("getAllCustomersWithOpenOrders.customer", connection -> {
+                try (PreparedStatement pstmt = connection.prepareStatement(sqlStatement)) {
+                    logStatement(pstmt);
                     logger.trace(sqlStatement);
 
-                    Date now = new Date(System.currentTimeMillis());
-                    String timestampBeforeCommit = sdf.format(now);
-
-                    ResultSet rs = statement.executeQuery(sqlStatement);
+                    long startNanos = System.nanoTime();
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        long endNanos = System.nanoTime();
+                        workloadQueryController.add(TEMPLATE_SELECT_CUSTOMERS_WITH_OPEN_ORDERS, 0, startNanos, endNanos);
 
-                    now = new Date(System.currentTimeMillis());
-                    String timestampAfterCommit = sdf.format(now);
-
-                    workloadQueryController.add(sqlStatement, timestampBeforeCommit, timestampAfterCommit);
-
-                    while (rs.next()) {
-                        Customer customer = new Customer();
-                        customer.initWithResultSet(rs);
-                        customerList.add(customer);
-                    }
-                    rs.close();
-                    statement.close();
-                    connection.close();
-                    break;
-                } catch (SQLException e) {
-                    logger.error(String.format("BenchmarkDAO.getAllCustomersWithOpenOrders ERROR: { state => %s, cause => %s, message => %s }\n", e.getSQLState(), e.getCause(), e.getMessage()));
-                    if (RETRY_SQL_STATE.equals(e.getSQLState())) {
-                        // Since this is a transaction retry error, we
-                        // roll back the transaction and sleep a
-                        // little before trying again.  Each time
-                        // through the loop we sleep for a little
-                        // longer than the last time
-                        // (A.K.A. exponential backoff).
-                        logger.trace(String.format("retryable exception occurred:\n    sql state = [%s]\n    message = [%s]\n    retry counter = %s\n", e.getSQLState(), e.getMessage(), retryCount));
-                        connection.rollback();
-                        retryCount++;
-                        int sleepMillis = (int) (Math.pow(2, retryCount) * 100 + new Random().nextInt(100));
-                        System.out.printf("Hit 40001 transaction retry error, sleeping %s milliseconds\n", sleepMillis);
-                        try {
-                            Thread.sleep(sleepMillis);
-                        } catch (InterruptedException ignored) {
-                            // Necessary to allow the Thread.sleep()
-                            // above so the retry loop can continue.
-                        }
-                        if (retryCount > MAX_RETRY_COUNT) {
-                            logger.error("MAX_RETRY_COUNT arrived. It is no longer tried to execute this query: " + sqlStatement);
-                            return null;
-                        }
+                        // the join also returns the order columns, the mapper only resolves the customer columns
+                        List<Customer> customerList = RowMapperRegistry.getRowMapper(Customer.class).mapAll(rs);
+                        transactionExecutor.countRows(customerList.size());
+                        return customerList;
                     }
-                } catch (Exception e) {
-                    System.err.println(e.getClass().getName() + ": " + e.getMessage());
-                    System.exit(0);
                 }
-            }
+            });
         } catch (SQLException e) {
-            System.out.printf("BenchmarkDAO.getAllCustomersWithOpenOrders ERROR: { state => %s, cause => %s, message => %s }\n",
-                    e.getSQLState(), e.getCause(), e.getMessage());
+            logError("getAllCustomersWithOpenOrders", Customer.class, e);
+            return new ArrayList<>();
         }
-        return customerList;
+    }
+
+    public Collection<TransactionStatistics> getTransactionStatistics() {
+        return transactionExecutor.transactionStatisticsMap.values();
     }
 
     /*
             start of wrappers
      */
 
-    public List<? extends DatabaseTableModel> getAllOfObjectTypeFromDB(DatabaseTableModel databaseTableModel) {return getAllOfObjectTypeFromDB(databaseTableModel, "");}
+    public List<? extends DatabaseTableModel> getAllOfObjectTypeFromDB(DatabaseTableModel databaseTableModel) {return getAllOfObjectTypeFromDB(databaseTableModel, databaseTableModel.getBasicSQLAllSelectString(), pstmt -> {});}
 
     public boolean bulkInsertCustomersToDB(List<Customer> customerList) {
         return bulkInsertObjectsToDB(customerList);
@@ -589,52 +455,42 @@ class BenchmarkDAO {
         return (List<OrderLine>) getForeignObjectsByObjectPrimaryKeyFromDB(order, new OrderLine());
     }
 
+
     public void truncateAllTables() {
         logger.warn("All tables truncated!");
-        try (Connection connection = ds.getConnection()) {
-
-            // We're managing the commit lifecycle ourselves so we can
-            // control the size of our batch inserts.
-            //connection.setAutoCommit(false);
-
-            // In this example we are adding 500 rows to the database,
-            // but it could be any number.  What's important is that
-            // the batch size is 128.
-            try (PreparedStatement pstmt = connection.prepareStatement("TRUNCATE TABLE customer CASCADE; TRUNCATE TABLE orders CASCADE; TRUNCATE TABLE item CASCADE; TRUNCATE TABLE order_line CASCADE;")) {
-
-                sqlLog.add(pstmt.toString());
+        try {
+            transactionExecutor.execute("truncateAllTables", connection -> {
+                try (PreparedStatement pstmt = connection.prepareStatement(SQL_TRUNCATE_ALL_TABLES)) {
+                    logStatement(pstmt);
+                    logger.trace("{}", pstmt);
 
-                logger.trace(pstmt.toString());
-
-                Date now = new Date(System.currentTimeMillis());
-                String timestampBeforeCommit = sdf.format(now);
-
-                pstmt.execute();
-
-                now = new Date(System.currentTimeMillis());
-                String timestampAfterCommit = sdf.format(now);
+                    long startNanos = System.nanoTime();
+                    pstmt.execute();
+                    long endNanos = System.nanoTime();
 
-                workloadQueryController.add(pstmt.toString(), timestampBeforeCommit, timestampAfterCommit);
-                //connection.commit();
-                pstmt.close();
-                connection.close();
-            } catch (SQLException e) {
-                System.out.printf("BenchmarkDAO.insertRandomCustomer ERROR: { state => %s, cause => %s, message => %s }\n",
-                        e.getSQLState(), e.getCause(), e.getMessage());
-            }
+                    workloadQueryController.add(TEMPLATE_TRUNCATE_ALL_TABLES, 0, startNanos, endNanos);
+                    return true;
+                }
+            });
         } catch (SQLException e) {
-            System.out.printf("BenchmarkDAO.insertRandomCustomer ERROR: { state => %s, cause => %s, message => %s }\n",
-                    e.getSQLState(), e.getCause(), e.getMessage());
+            logError("truncateAllTables", BenchmarkDAO.class, e);
         }
     }
 
-    public List<Item> getItemsFromDB(List<Item> itemList) { return (List<Item>) getAllOfObjectTypeFromDB(itemList.get(0), String.format("WHERE i_id IN ('%s')", itemList.stream().map(i -> i.i_id).collect(Collectors.joining("','")))); }
+    public List<Item> getItemsFromDB(List<Item> itemList) {
+        return (List<Item>) getAllOfObjectTypeFromDB(itemList.get(0), SQL_SELECT_ITEMS_BY_IDS, pstmt -> pstmt.setArray(1, pstmt.getConnection().createArrayOf("uuid", itemList.stream().map(item -> UUID.fromString(item.i_id)).toArray())));
+    }
 
-    public List<Item> getItemsFromDBOrderedByPrice(int limit) { return (List<Item>) getAllOfObjectTypeFromDB(new Item(), String.format("ORDER BY i_cost LIMIT %d", limit)); }
+    public List<Item> getItemsFromDBOrderedByPrice(int limit) { return (List<Item>) getAllOfObjectTypeFromDB(new Item(), SQL_SELECT_ITEMS_ORDERED_BY_PRICE, pstmt -> pstmt.setInt(1, limit)); }
 
-    public List<Item> getItemsFromDBOrderedByName(int limit) { return (List<Item>) getAllOfObjectTypeFromDB(new Item(), String.format("ORDER BY i_title LIMIT %d", limit)); }
+    public List<Item> getItemsFromDBOrderedByName(int limit) { return (List<Item>) getAllOfObjectTypeFromDB(new Item(), SQL_SELECT_ITEMS_ORDERED_BY_NAME, pstmt -> pstmt.setInt(1, limit)); }
 
-    public List<Item> getItemsFromDBWhereNameContains(int limit, String nameContainsString) { return (List<Item>) getAllOfObjectTypeFromDB(new Item(), String.format("WHERE i_title LIKE '%%%s%%' LIMIT %d", nameContainsString, limit)); }
+    public List<Item> getItemsFromDBWhereNameContains(int limit, String nameContainsString) {
+        return (List<Item>) getAllOfObjectTypeFromDB(new Item(), SQL_SELECT_ITEMS_WHERE_NAME_CONTAINS, pstmt -> {
+            pstmt.setString(1, "%" + nameContainsString + "%");
+            pstmt.setInt(2, limit);
+        });
+    }
 
     public List<Customer> getAllCustomersFromDB() {
         return (List<Customer>) getAllOfObjectTypeFromDB(new Customer());
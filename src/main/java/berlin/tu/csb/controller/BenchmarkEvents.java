@@ -0,0 +1,99 @@
+package berlin.tu.csb.controller;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR events of the benchmark client, so one recording shows the queries, retries, connection checkouts and use cases
+ * next to the GC, JIT and thread state events of the JVM. They are enabled by default and cost next to nothing while no
+ * recording runs, see JfrRecordingController for the recording that is started from the BenchmarkConfig.
+ * The events are committed with stack traces disabled, the thread and the fields identify where they come from.
+ **/
+class BenchmarkEvents {
+    static final String CATEGORY = "Cloud Service Benchmark";
+
+    // one statement as it is written to the trace, committed after it returned
+    @Name("berlin.tu.csb.Query")
+    @Label("Query")
+    @Category({CATEGORY, "Database"})
+    @StackTrace(false)
+    static class QueryEvent extends Event {
+        @Label("Operation Type")
+        @Description("SELECT, JOIN, INSERT, UPDATE, COPY or OTHER")
+        String operationType;
+        @Label("Template Id")
+        int templateId;
+        @Label("Template")
+        String template;
+        @Label("Node")
+        String serverAddress;
+        @Label("Attempt")
+        int attempt;
+        @Label("Query Duration")
+        @Timespan(Timespan.NANOSECONDS)
+        long queryDuration;
+        @Label("Connection Wait")
+        @Timespan(Timespan.NANOSECONDS)
+        long connectionWait;
+    }
+
+    // a DAO operation including its retries and failovers, the event duration is the duration of the operation
+    @Name("berlin.tu.csb.Operation")
+    @Label("Benchmark Operation")
+    @Category({CATEGORY, "Database"})
+    @StackTrace(false)
+    static class OperationEvent extends Event {
+        @Label("Operation")
+        String operationName;
+        @Label("Outcome")
+        String outcome;
+        @Label("Attempts")
+        int attempts;
+        @Label("Node")
+        String serverAddress;
+    }
+
+    // the backoff before a retry, the event duration is the time spent waiting
+    @Name("berlin.tu.csb.Retry")
+    @Label("Transaction Retry")
+    @Category({CATEGORY, "Database"})
+    @StackTrace(false)
+    static class RetryEvent extends Event {
+        @Label("Operation")
+        String operationName;
+        @Label("Failed Attempt")
+        int attempt;
+        @Label("SQL State")
+        String sqlState;
+    }
+
+    @Name("berlin.tu.csb.ConnectionAcquisition")
+    @Label("Connection Acquisition")
+    @Category({CATEGORY, "Database"})
+    @StackTrace(false)
+    static class ConnectionAcquisitionEvent extends Event {
+        @Label("Node")
+        String serverAddress;
+    }
+
+    // one invocation of a run phase use case, see UseCaseTimer
+    @Name("berlin.tu.csb.UseCase")
+    @Label("Use Case")
+    @Category({CATEGORY, "Workload"})
+    @StackTrace(false)
+    static class UseCaseEvent extends Event {
+        @Label("Use Case")
+        String useCaseName;
+        @Label("Successful")
+        boolean isSuccessful;
+        @Label("Statements")
+        long statements;
+        @Label("Rows Returned")
+        long rowsReturned;
+    }
+}
@@ -0,0 +1,192 @@
+package berlin.tu.csb.controller;
+
+import berlin.tu.csb.model.BenchmarkConfig;
+import berlin.tu.csb.model.ClockOffsetSample;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Estimates the offset of the local clock to the clock of a database server while a phase runs, the way NTP does:
+ * the server time read by a probe is compared with the middle of the local send and receive time, half of the
+ * round trip is the uncertainty. All VMs probe the same node (BenchmarkConfig.clockReferenceAddress) and write their
+ * samples next to their trace, the analysis uses them to move the timelines of all VMs onto the clock of that node
+ * before they are merged.
+ **/
+public class ClockOffsetController {
+    private static final long DEFAULT_SAMPLE_INTERVAL_MILLIS = 10000;
+    private static final int DEFAULT_PROBES_PER_SAMPLE = 5;
+
+    static Logger logger = LogManager.getLogger(ClockOffsetController.class);
+
+    // same clock as the traces: one wall clock reading, System.nanoTime() from there on
+    private static final long anchorNanoTime;
+    private static final long anchorEpochNanos;
+
+    static {
+        Instant now = Instant.now();
+        anchorNanoTime = System.nanoTime();
+        anchorEpochNanos = now.getEpochSecond() * 1_000_000_000L + now.getNano();
+    }
+
+    private static final List<ClockOffsetSample> clockOffsetSampleList = new ArrayList<>();
+    private static ScheduledExecutorService sampler;
+    private static DataSource dataSource;
+    private static String serverAddress;
+    private static int probesPerSample;
+
+    public static synchronized void start(DataSource referenceDataSource, String referenceServerAddress, BenchmarkConfig benchmarkConfig) {
+        if (sampler != null) {
+            return;
+        }
+        dataSource = referenceDataSource;
+        serverAddress = referenceServerAddress;
+        probesPerSample = benchmarkConfig.clockOffsetProbesPerSample > 0 ? benchmarkConfig.clockOffsetProbesPerSample : DEFAULT_PROBES_PER_SAMPLE;
+        long intervalInMilliseconds = benchmarkConfig.clockOffsetSampleIntervalInMilliseconds > 0 ? benchmarkConfig.clockOffsetSampleIntervalInMilliseconds : DEFAULT_SAMPLE_INTERVAL_MILLIS;
+        synchronized (clockOffsetSampleList) {
+            clockOffsetSampleList.clear();
+        }
+        sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "clock-offset-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleAtFixedRate(ClockOffsetController::sample, 0, intervalInMilliseconds, TimeUnit.MILLISECONDS);
+    }
+
+    // takes a last sample, so even a short phase has one at its start and one at its end, and writes all of them
+    public static synchronized void stop(Path filePath) {
+        if (sampler == null) {
+            return;
+        }
+        sampler.shutdownNow();
+        try {
+            sampler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sampler = null;
+        sample();
+
+        Gson gson = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+        String json;
+        synchronized (clockOffsetSampleList) {
+            json = gson.toJson(clockOffsetSampleList);
+        }
+        try {
+            Files.createDirectories(filePath.getParent());
+            Files.writeString(filePath, json, StandardOpenOption.CREATE_NEW);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void sample() {
+        ClockOffsetSample bestSample = null;
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement("SELECT clock_timestamp()")) {
+            for (int i = 0; i < probesPerSample; i++) {
+                long sendEpochNanos = getEpochNanos();
+                Timestamp serverTimestamp;
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    rs.next();
+                    serverTimestamp = rs.getTimestamp(1);
+                }
+                long receiveEpochNanos = getEpochNanos();
+
+                // the probe with the shortest round trip has the smallest uncertainty, it is the least disturbed by queueing
+                long uncertaintyNanos = (receiveEpochNanos - sendEpochNanos) / 2;
+                if (bestSample == null || uncertaintyNanos < bestSample.uncertaintyNanos) {
+                    Instant serverInstant = serverTimestamp.toInstant();
+                    bestSample = new ClockOffsetSample();
+                    bestSample.clientEpochNanos = sendEpochNanos + uncertaintyNanos;
+                    bestSample.offsetNanos = serverInstant.getEpochSecond() * 1_000_000_000L + serverInstant.getNano() - bestSample.clientEpochNanos;
+                    bestSample.uncertaintyNanos = uncertaintyNanos;
+                    bestSample.serverAddress = serverAddress;
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Could not estimate the clock offset to " + serverAddress + ": " + e.getMessage());
+            return;
+        }
+        logger.debug(String.format("Clock offset to %s: %.3f ms +- %.3f ms", serverAddress, bestSample.offsetNanos / 1_000_000d, bestSample.uncertaintyNanos / 1_000_000d));
+        synchronized (clockOffsetSampleList) {
+            clockOffsetSampleList.add(bestSample);
+        }
+    }
+
+    private static long getEpochNanos() {
+        return anchorEpochNanos + (System.nanoTime() - anchorNanoTime);
+    }
+
+    /**
+     * Drops the samples whose uncertainty is more than twice the median, like NTP discards samples of congested round
+     * trips, and sorts the rest by time. The result is the input of getOffsetNanos.
+     **/
+    public static List<ClockOffsetSample> getFilteredSamples(List<ClockOffsetSample> clockOffsetSampleList) {
+        if (clockOffsetSampleList.isEmpty()) {
+            return new ArrayList<>();
+        }
+        long[] uncertainties = clockOffsetSampleList.stream().mapToLong(clockOffsetSample -> clockOffsetSample.uncertaintyNanos).toArray();
+        Arrays.sort(uncertainties);
+        long maxUncertaintyNanos = 2 * uncertainties[uncertainties.length / 2];
+        List<ClockOffsetSample> filteredSampleList = new ArrayList<>();
+        for (ClockOffsetSample clockOffsetSample : clockOffsetSampleList) {
+            if (clockOffsetSample.uncertaintyNanos <= maxUncertaintyNanos) {
+                filteredSampleList.add(clockOffsetSample);
+            }
+        }
+        filteredSampleList.sort(Comparator.comparingLong(clockOffsetSample -> clockOffsetSample.clientEpochNanos));
+        return filteredSampleList;
+    }
+
+    // offset at the given local time, interpolated between the two surrounding samples so a drifting clock is followed
+    public static long getOffsetNanos(List<ClockOffsetSample> filteredSampleList, long clientEpochNanos) {
+        if (filteredSampleList.isEmpty()) {
+            return 0;
+        }
+        ClockOffsetSample first = filteredSampleList.get(0);
+        ClockOffsetSample last = filteredSampleList.get(filteredSampleList.size() - 1);
+        if (clientEpochNanos <= first.clientEpochNanos) {
+            return first.offsetNanos;
+        }
+        if (clientEpochNanos >= last.clientEpochNanos) {
+            return last.offsetNanos;
+        }
+        // binary search for the first sample after the given time, every query of a trace is mapped through here
+        int low = 1;
+        int high = filteredSampleList.size() - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (filteredSampleList.get(middle).clientEpochNanos < clientEpochNanos) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        ClockOffsetSample previous = filteredSampleList.get(low - 1);
+        ClockOffsetSample next = filteredSampleList.get(low);
+        double fraction = (double) (clientEpochNanos - previous.clientEpochNanos) / (next.clientEpochNanos - previous.clientEpochNanos);
+        return previous.offsetNanos + (long) (fraction * (next.offsetNanos - previous.offsetNanos));
+    }
+}
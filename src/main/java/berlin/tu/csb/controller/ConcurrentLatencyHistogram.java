@@ -0,0 +1,43 @@
+package berlin.tu.csb.controller;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LatencyHistogram layout with atomic counters, so a reporter thread can drain it while the owning worker thread keeps
+ * recording. Neither side takes a lock, a value recorded during a drain ends up in this or in the next interval.
+ **/
+public class ConcurrentLatencyHistogram {
+    private final AtomicLongArray counts = new AtomicLongArray(LatencyHistogram.BUCKET_COUNT);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong sumNanos = new AtomicLong();
+    private final AtomicLong minNanos = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(LatencyHistogram.getBucketIndex(value));
+        totalCount.incrementAndGet();
+        sumNanos.addAndGet(value);
+        long current;
+        while (value < (current = minNanos.get()) && !minNanos.compareAndSet(current, value)) {
+            // retry, the reporter reset it in between
+        }
+        while (value > (current = maxNanos.get()) && !maxNanos.compareAndSet(current, value)) {
+            // retry, the reporter reset it in between
+        }
+    }
+
+    // adds everything recorded since the last drain to the target and starts a new interval
+    public void drainInto(LatencyHistogram target) {
+        for (int i = 0; i < LatencyHistogram.BUCKET_COUNT; i++) {
+            if (counts.get(i) != 0) {
+                target.counts[i] += counts.getAndSet(i, 0);
+            }
+        }
+        target.totalCount += totalCount.getAndSet(0);
+        target.sumNanos += sumNanos.getAndSet(0);
+        target.minNanos = Math.min(target.minNanos, minNanos.getAndSet(Long.MAX_VALUE));
+        target.maxNanos = Math.max(target.maxNanos, maxNanos.getAndSet(0));
+    }
+}
@@ -0,0 +1,157 @@
+package berlin.tu.csb.controller;
+
+import berlin.tu.csb.model.BenchmarkConfig;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.postgresql.ds.PGSimpleDataSource;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds exactly one HikariCP pool per server address. All DatabaseControllers that point to the same
+ * server share the pool, so the TCP connect and the PostgreSQL handshake are no longer part of the measured latency.
+ **/
+public class ConnectionPoolController {
+    private static final int DEFAULT_POOL_SIZE = 10;
+    private static final long DEFAULT_CONNECTION_TIMEOUT_MILLIS = 30000;
+    private static final int PREPARED_STATEMENT_CACHE_SIZE = 256;
+    private static final String CSV_HEADER = "timestampMillis,poolName,activeConnections,idleConnections,totalConnections,threadsAwaitingConnection";
+
+    private static final Map<String, HikariDataSource> dataSourceMap = new ConcurrentHashMap<>();
+    private static ScheduledExecutorService usageSampler;
+    // the samples are appended while the benchmark runs instead of being kept in memory for the whole run
+    private static BufferedWriter csvWriter;
+
+    static Logger logger = LogManager.getLogger(ConnectionPoolController.class);
+
+    public static HikariDataSource getDataSource(String dbName, String dbUserName, int dbPort, String serverAddress, BenchmarkConfig benchmarkConfig) {
+        String poolName = String.format("%s:%d/%s", serverAddress, dbPort, dbName);
+        return dataSourceMap.computeIfAbsent(poolName, key -> createDataSource(key, dbName, dbUserName, dbPort, serverAddress, benchmarkConfig));
+    }
+
+    private static HikariDataSource createDataSource(String poolName, String dbName, String dbUserName, int dbPort, String serverAddress, BenchmarkConfig benchmarkConfig) {
+        logger.info("Creating connection pool for " + poolName);
+
+        PGSimpleDataSource pgSimpleDataSource = createPGSimpleDataSource(dbName, dbUserName, dbPort, serverAddress);
+
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(poolName);
+        config.setDataSource(pgSimpleDataSource);
+
+        int maximumPoolSize = benchmarkConfig.connectionPoolMaxSizePerServer > 0 ? benchmarkConfig.connectionPoolMaxSizePerServer : DEFAULT_POOL_SIZE;
+        config.setMaximumPoolSize(maximumPoolSize);
+        // keep the pool at a fixed size unless configured otherwise, so no connections get opened during the run
+        config.setMinimumIdle(benchmarkConfig.connectionPoolMinIdlePerServer > 0 ? Math.min(benchmarkConfig.connectionPoolMinIdlePerServer, maximumPoolSize) : maximumPoolSize);
+        config.setConnectionTimeout(benchmarkConfig.connectionPoolTimeoutInMilliseconds > 0 ? benchmarkConfig.connectionPoolTimeoutInMilliseconds : DEFAULT_CONNECTION_TIMEOUT_MILLIS);
+
+        // session settings are applied once when the pool opens the physical connection and not on every checkout
+        if (benchmarkConfig.connectionInitSql != null && !benchmarkConfig.connectionInitSql.isBlank()) {
+            config.setConnectionInitSql(benchmarkConfig.connectionInitSql);
+        }
+
+        return new HikariDataSource(config);
+    }
+
+    static PGSimpleDataSource createPGSimpleDataSource(String dbName, String dbUserName, int dbPort, String serverAddress) {
+        PGSimpleDataSource pgSimpleDataSource = new PGSimpleDataSource();
+        pgSimpleDataSource.setServerNames(new String[]{serverAddress});
+        pgSimpleDataSource.setPortNumbers(new int[]{dbPort});
+        pgSimpleDataSource.setDatabaseName(dbName);
+        pgSimpleDataSource.setUser(dbUserName);
+        pgSimpleDataSource.setSsl(false);
+        pgSimpleDataSource.setSslMode("disable");
+        pgSimpleDataSource.setReWriteBatchedInserts(true); // add `rewriteBatchedInserts=true` to pg connection string
+        pgSimpleDataSource.setApplicationName("BasicExample");
+        // use a named server side prepared statement from the first execution on instead of after five executions,
+        // the driver keeps them per physical connection and the pool keeps the connections open for the whole run
+        pgSimpleDataSource.setPrepareThreshold(1);
+        pgSimpleDataSource.setPreparedStatementCacheQueries(PREPARED_STATEMENT_CACHE_SIZE);
+        return pgSimpleDataSource;
+    }
+
+    public static synchronized void startUsageSampling(Path csvFilePath, long intervalInMilliseconds) {
+        if (usageSampler != null) {
+            return;
+        }
+        try {
+            Files.createDirectories(csvFilePath.getParent());
+            csvWriter = Files.newBufferedWriter(csvFilePath, StandardCharsets.UTF_8);
+            csvWriter.write(CSV_HEADER);
+            csvWriter.newLine();
+        } catch (IOException e) {
+            logger.error("Could not create " + csvFilePath + ", the connection pool usage is not sampled: " + e.getMessage());
+            csvWriter = null;
+            return;
+        }
+        usageSampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        usageSampler.scheduleAtFixedRate(ConnectionPoolController::sampleUsage, 0, intervalInMilliseconds, TimeUnit.MILLISECONDS);
+    }
+
+    private static synchronized void sampleUsage() {
+        if (csvWriter == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try {
+            for (Map.Entry<String, HikariDataSource> entry : dataSourceMap.entrySet()) {
+                HikariPoolMXBean poolMXBean = entry.getValue().getHikariPoolMXBean();
+                if (poolMXBean == null) {
+                    continue;
+                }
+                csvWriter.write(String.format("%d,%s,%d,%d,%d,%d", now, entry.getKey(), poolMXBean.getActiveConnections(),
+                        poolMXBean.getIdleConnections(), poolMXBean.getTotalConnections(), poolMXBean.getThreadsAwaitingConnection()));
+                csvWriter.newLine();
+            }
+            // flushed every interval, so the samples up to a crash are on disk
+            csvWriter.flush();
+        } catch (IOException e) {
+            logger.error("Writing the connection pool usage failed, the sampling stops: " + e.getMessage());
+            closeCsvWriter();
+        }
+    }
+
+    // takes a last sample and closes the csv file
+    public static synchronized void stopUsageSampling() {
+        if (usageSampler == null) {
+            return;
+        }
+        usageSampler.shutdownNow();
+        usageSampler = null;
+        sampleUsage();
+        closeCsvWriter();
+    }
+
+    private static void closeCsvWriter() {
+        if (csvWriter == null) {
+            return;
+        }
+        try {
+            csvWriter.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        csvWriter = null;
+    }
+
+    public static void closeAll() {
+        stopUsageSampling();
+        dataSourceMap.values().forEach(HikariDataSource::close);
+        dataSourceMap.clear();
+    }
+}
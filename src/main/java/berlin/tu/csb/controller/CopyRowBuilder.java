@@ -0,0 +1,78 @@
+package berlin.tu.csb.controller;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+
+/**
+ * Builds rows in the text format of COPY ... FROM STDIN (tab separated columns, one row per line, \N for NULL).
+ **/
+public class CopyRowBuilder {
+    private final StringBuilder stringBuilder = new StringBuilder();
+    private boolean isFirstColumn = true;
+
+    public CopyRowBuilder add(String value) {
+        startColumn();
+        if (value == null) {
+            stringBuilder.append("\\N");
+            return this;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    stringBuilder.append("\\\\");
+                    break;
+                case '\t':
+                    stringBuilder.append("\\t");
+                    break;
+                case '\n':
+                    stringBuilder.append("\\n");
+                    break;
+                case '\r':
+                    stringBuilder.append("\\r");
+                    break;
+                default:
+                    stringBuilder.append(c);
+            }
+        }
+        return this;
+    }
+
+    public CopyRowBuilder add(Timestamp value) {
+        return add(value == null ? null : value.toString());
+    }
+
+    public CopyRowBuilder add(float value) {
+        startColumn();
+        stringBuilder.append(value);
+        return this;
+    }
+
+    public CopyRowBuilder add(int value) {
+        startColumn();
+        stringBuilder.append(value);
+        return this;
+    }
+
+    public void endRow() {
+        stringBuilder.append('\n');
+        isFirstColumn = true;
+    }
+
+    public int length() {
+        return stringBuilder.length();
+    }
+
+    public byte[] drainBytes() {
+        byte[] bytes = stringBuilder.toString().getBytes(StandardCharsets.UTF_8);
+        stringBuilder.setLength(0);
+        return bytes;
+    }
+
+    private void startColumn() {
+        if (!isFirstColumn) {
+            stringBuilder.append('\t');
+        }
+        isFirstColumn = false;
+    }
+}
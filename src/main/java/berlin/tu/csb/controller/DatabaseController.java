@@ -1,67 +1,37 @@
 package berlin.tu.csb.controller;
 
 
+import berlin.tu.csb.model.BenchmarkConfig;
 import berlin.tu.csb.model.Customer;
 import berlin.tu.csb.model.Item;
 import berlin.tu.csb.model.Order;
 import berlin.tu.csb.model.OrderLine;
-import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
-import org.postgresql.ds.PGSimpleDataSource;
 
-import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.ThreadLocalRandom;
 
 public class DatabaseController {
     BenchmarkDAO dao;
     WorkloadQueryController workloadQueryController;
 
 
-    public DatabaseController(String dbName, String dbUserName, int dbPort, String serverAddress) {
-
-
-
-
+    public DatabaseController(String dbName, String dbUserName, int dbPort, String serverAddress, BenchmarkConfig benchmarkConfig) {
         System.out.println("Connecting to databases " + serverAddress);
 
-        // Configure the database connection.
-
-        /* Default JDBC for postgres - Without connection pooling
-
-         */
-        PGSimpleDataSource ds = new PGSimpleDataSource();
-        ds.setServerNames(new String[]{serverAddress});
-        ds.setPortNumbers(new int[]{dbPort});
-        ds.setDatabaseName(dbName);
-        ds.setUser(dbUserName);
-        ds.setSsl(false);
-        ds.setSslMode("disable");
-        ds.setReWriteBatchedInserts(true); // add `rewriteBatchedInserts=true` to pg connection string
-        ds.setApplicationName("BasicExample");
-
-
-        /* Apache Commons DBCP - With Connection Pooling
-
-
-        BasicDataSource ds = new BasicDataSource();
-        ds.setUrl(String.format("jdbc:postgresql://%s:%s/%s", serverAddresses[0], dbPort, dbName));
-        ds.setUsername(dbUserName);
-        */
-
-        /* HikariCP - With connection pooling
-
-        HikariConfig config = new HikariConfig();
-        config.setJdbcUrl(String.format("jdbc:postgresql://%s:%s/%s", serverAddresses[0], dbPort, dbName));
-        config.setUsername("root");
-
-        HikariDataSource ds = new HikariDataSource(config);
-        */
-
+        // Configure the database connection. One HikariCP pool is shared per server address.
+        HikariDataSource ds = ConnectionPoolController.getDataSource(dbName, dbUserName, dbPort, serverAddress, benchmarkConfig);
 
         this.workloadQueryController = new WorkloadQueryController();
+        this.workloadQueryController.setServerAddress(serverAddress);
         // Create DAO
-        this.dao = new BenchmarkDAO(ds, workloadQueryController);
+        this.dao = new BenchmarkDAO(ds, workloadQueryController, benchmarkConfig);
+    }
+
+    // every checkout picks a node of the SUT, the node that served a query is recorded per query
+    public DatabaseController(LoadBalancingDataSource loadBalancingDataSource, BenchmarkConfig benchmarkConfig) {
+        this.workloadQueryController = new WorkloadQueryController();
+        this.dao = new BenchmarkDAO(loadBalancingDataSource, workloadQueryController, benchmarkConfig);
     }
 
     public boolean insertCustomer(Customer customer) {
@@ -70,6 +40,14 @@ public class DatabaseController {
 
     public boolean bulkInsertCustomers(List<Customer> customerList) {return dao.bulkInsertCustomersToDB(customerList);}
 
+    public boolean copyCustomers(Iterator<Customer> customerIterator) { return dao.copyObjectsToDB(new Customer(), customerIterator); }
+
+    public boolean copyItems(Iterator<Item> itemIterator) { return dao.copyObjectsToDB(new Item(), itemIterator); }
+
+    public boolean copyOrders(Iterator<Order> orderIterator) { return dao.copyObjectsToDB(new Order(), orderIterator); }
+
+    public boolean copyOrderLines(Iterator<OrderLine> orderLineIterator) { return dao.copyObjectsToDB(new OrderLine(), orderLineIterator); }
+
     public boolean insertItem(Item item) {
         return dao.insertItemIntoDB(item);
     }
@@ -85,7 +63,7 @@ public class DatabaseController {
     }
 
     public boolean insertOrderWithOrderLines(Order order, List<OrderLine> orderLines) {
-        return insertOrder(order) && insertOrderLines(orderLines);
+        return dao.insertOrderWithOrderLinesToDB(order, orderLines);
     }
 
     public Item getItem(Item item) {
@@ -0,0 +1,61 @@
+package berlin.tu.csb.controller;
+
+import berlin.tu.csb.model.BenchmarkConfig;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+
+/**
+ * Records a phase with the JDK Flight Recorder, without an agent or command line flags. The recording uses the
+ * settings named by BenchmarkConfig.jfrRecordingMode ("default", "profile" or the path of a .jfc file) plus all
+ * BenchmarkEvents without threshold, and is written to the given file when the phase ends.
+ **/
+public class JfrRecordingController {
+    static Logger logger = LogManager.getLogger(JfrRecordingController.class);
+
+    private static Recording recording;
+
+    public static synchronized void start(Path filePath, BenchmarkConfig benchmarkConfig) {
+        String mode = benchmarkConfig.jfrRecordingMode;
+        if (recording != null || mode == null || mode.isEmpty() || "off".equals(mode)) {
+            return;
+        }
+        try {
+            Configuration configuration = mode.endsWith(".jfc") ? Configuration.create(Paths.get(mode)) : Configuration.getConfiguration(mode);
+            Files.createDirectories(filePath.getParent());
+            recording = new Recording(configuration);
+            recording.setName("csb-" + filePath.getFileName());
+            recording.setToDisk(true);
+            recording.setDestination(filePath);
+        } catch (IOException | ParseException e) {
+            logger.error("Could not start the JFR recording with the settings " + mode + ": " + e.getMessage());
+            recording = null;
+            return;
+        }
+        recording.enable(BenchmarkEvents.QueryEvent.class).withoutThreshold();
+        recording.enable(BenchmarkEvents.OperationEvent.class).withoutThreshold();
+        recording.enable(BenchmarkEvents.RetryEvent.class).withoutThreshold();
+        recording.enable(BenchmarkEvents.ConnectionAcquisitionEvent.class).withoutThreshold();
+        recording.enable(BenchmarkEvents.UseCaseEvent.class).withoutThreshold();
+        recording.start();
+        logger.info("Started the JFR recording " + filePath + " with the settings " + mode);
+    }
+
+    // stopping writes the recording to its destination
+    public static synchronized void stop() {
+        if (recording == null) {
+            return;
+        }
+        recording.stop();
+        logger.info("Wrote the JFR recording " + recording.getDestination());
+        recording.close();
+        recording = null;
+    }
+}
@@ -0,0 +1,126 @@
+package berlin.tu.csb.controller;
+
+import berlin.tu.csb.model.SteadyStateWindow;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Corrects the latencies of a trace for coordinated omission.
+ * A closed loop thread does not send requests while the SUT stalls, so a stall shows up as one slow query instead of
+ * all the queries that would have been sent in the meantime. Queries of the open loop carry their intended start, there
+ * the time the operation waited for its schedule is added to each of its queries. For the closed loop the expected
+ * interval between two queries of a thread (the median gap between their starts) is used to add the missing samples:
+ * a query that took longer than the interval adds the latencies the queued up queries would have seen.
+ **/
+public class LatencyCorrectionController {
+
+    // the synthetic samples of one query are bounded, a single stuck query must not keep the analysis busy
+    private static final int MAX_SYNTHETIC_SAMPLES_PER_QUERY = 100_000;
+
+    /**
+     * Records the corrected latencies of the columns of one thread into the histogram of their query type (as in
+     * WorkloadColumns.getQueryType, types without a histogram in the map are skipped) and into allHistogram.
+     * Only the queries that ended in the steady state window are recorded, the interval is taken from all of them.
+     **/
+    public static void recordCorrectedLatencies(List<WorkloadColumns> workloadColumnsListOfThread, SteadyStateWindow steadyStateWindow, Map<String, LatencyHistogram> histogramPerQueryType, LatencyHistogram allHistogram) {
+        int size = workloadColumnsListOfThread.stream().mapToInt(workloadColumns -> workloadColumns.size).sum();
+        long[] startNanos = new long[size];
+        // position of every record in the columns
+        int[] columnIndex = new int[size];
+        int[] recordIndex = new int[size];
+        int k = 0;
+        for (int c = 0; c < workloadColumnsListOfThread.size(); c++) {
+            WorkloadColumns workloadColumns = workloadColumnsListOfThread.get(c);
+            for (int i = 0; i < workloadColumns.size; i++) {
+                startNanos[k] = workloadColumns.startNanos[i];
+                columnIndex[k] = c;
+                recordIndex[k] = i;
+                k++;
+            }
+        }
+        int[] order = getStartOrder(startNanos);
+        long[] sortedStartNanos = new long[size];
+        for (int n = 0; n < size; n++) {
+            sortedStartNanos[n] = startNanos[order[n]];
+        }
+        long expectedIntervalNanos = getExpectedIntervalNanos(sortedStartNanos);
+
+        long currentIntendedStartNanos = 0;
+        long scheduleLagNanos = 0;
+        for (int n = 0; n < size; n++) {
+            WorkloadColumns workloadColumns = workloadColumnsListOfThread.get(columnIndex[order[n]]);
+            int i = recordIndex[order[n]];
+            if (!steadyStateWindow.contains(workloadColumns.startNanos[i] + workloadColumns.durationNanos[i])) {
+                continue;
+            }
+            LatencyHistogram queryTypeHistogram = histogramPerQueryType.get(workloadColumns.getQueryType(i));
+            long durationNanos = workloadColumns.durationNanos[i];
+            long intendedStartNanos = workloadColumns.intendedStartNanos[i];
+
+            if (intendedStartNanos != 0) {
+                // all queries of one open loop operation share its intended start, the first of them shows how late the operation started
+                if (intendedStartNanos != currentIntendedStartNanos) {
+                    currentIntendedStartNanos = intendedStartNanos;
+                    scheduleLagNanos = Math.max(0, workloadColumns.startNanos[i] - intendedStartNanos);
+                }
+                record(durationNanos + scheduleLagNanos, queryTypeHistogram, allHistogram);
+                continue;
+            }
+
+            record(durationNanos, queryTypeHistogram, allHistogram);
+            if (expectedIntervalNanos <= 0) {
+                continue;
+            }
+            // the queries that would have been sent while this one was running would have waited for it
+            long missingLatencyNanos = durationNanos - expectedIntervalNanos;
+            for (int j = 0; missingLatencyNanos >= expectedIntervalNanos && j < MAX_SYNTHETIC_SAMPLES_PER_QUERY; j++) {
+                record(missingLatencyNanos, queryTypeHistogram, allHistogram);
+                missingLatencyNanos -= expectedIntervalNanos;
+            }
+        }
+    }
+
+    // the segments of a thread are ingested in file name order, so they are sorted already unless the trace is an old one
+    private static int[] getStartOrder(long[] startNanos) {
+        int[] order = new int[startNanos.length];
+        boolean isSorted = true;
+        for (int i = 0; i < startNanos.length; i++) {
+            order[i] = i;
+            isSorted &= i == 0 || startNanos[i - 1] <= startNanos[i];
+        }
+        if (isSorted) {
+            return order;
+        }
+        Integer[] boxedOrder = new Integer[startNanos.length];
+        for (int i = 0; i < startNanos.length; i++) {
+            boxedOrder[i] = i;
+        }
+        Arrays.sort(boxedOrder, (a, b) -> Long.compare(startNanos[a], startNanos[b]));
+        for (int i = 0; i < startNanos.length; i++) {
+            order[i] = boxedOrder[i];
+        }
+        return order;
+    }
+
+    // median gap between the starts of two consecutive queries of one thread, 0 if the thread has less than two queries
+    public static long getExpectedIntervalNanos(long[] sortedStartNanos) {
+        if (sortedStartNanos.length < 2) {
+            return 0;
+        }
+        long[] gaps = new long[sortedStartNanos.length - 1];
+        for (int i = 1; i < sortedStartNanos.length; i++) {
+            gaps[i - 1] = sortedStartNanos[i] - sortedStartNanos[i - 1];
+        }
+        Arrays.sort(gaps);
+        return gaps[gaps.length / 2];
+    }
+
+    private static void record(long latencyNanos, LatencyHistogram queryTypeHistogram, LatencyHistogram allHistogram) {
+        if (queryTypeHistogram != null) {
+            queryTypeHistogram.record(latencyNanos);
+        }
+        allHistogram.record(latencyNanos);
+    }
+}
@@ -0,0 +1,150 @@
+package berlin.tu.csb.controller;
+
+import berlin.tu.csb.model.LatencyHistogramSnapshot;
+
+import java.util.Arrays;
+
+/**
+ * Histogram of latencies in nanoseconds with log-linear buckets: every power of two is split into SUB_BUCKETS linear
+ * buckets, so a percentile is off by at most 1/SUB_BUCKETS (about 3%) of its value, independent of the number of values.
+ * Histograms with the same layout can be merged, which is what makes them usable for per thread recording, and
+ * toSnapshot keeps them in a form that can be merged with the histograms of other vms and runs.
+ * Not thread safe, see ConcurrentLatencyHistogram for the variant that is read while it is written.
+ **/
+public class LatencyHistogram {
+    static final int SUB_BUCKET_BITS = 5;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // values up to 2^40 ns (about 18 minutes), larger values end up in the last bucket
+    static final int MAX_MAGNITUDE = 40;
+    static final int BUCKET_COUNT = (MAX_MAGNITUDE - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    final long[] counts = new long[BUCKET_COUNT];
+    long totalCount = 0;
+    long sumNanos = 0;
+    long minNanos = Long.MAX_VALUE;
+    long maxNanos = 0;
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts[getBucketIndex(value)]++;
+        totalCount++;
+        sumNanos += value;
+        minNanos = Math.min(minNanos, value);
+        maxNanos = Math.max(maxNanos, value);
+    }
+
+    public void merge(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        sumNanos += other.sumNanos;
+        minNanos = Math.min(minNanos, other.minNanos);
+        maxNanos = Math.max(maxNanos, other.maxNanos);
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        sumNanos = 0;
+        minNanos = Long.MAX_VALUE;
+        maxNanos = 0;
+    }
+
+    public long getCount() {
+        return totalCount;
+    }
+
+    public long getMinNanos() {
+        return totalCount == 0 ? 0 : minNanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    public double getMeanNanos() {
+        return totalCount == 0 ? 0 : (double) sumNanos / totalCount;
+    }
+
+    // percentile between 0 and 100, returns the upper bound of the bucket the percentile falls into, capped at the max
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100d * totalCount));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(maxNanos, Math.max(minNanos, getBucketUpperBound(i)));
+            }
+        }
+        return maxNanos;
+    }
+
+    public double getValueAtPercentileInMilliseconds(double percentile) {
+        return getValueAtPercentile(percentile) / 1_000_000d;
+    }
+
+    // only the buckets that are not empty are kept, a histogram of one run is a few kilobytes at most
+    public LatencyHistogramSnapshot toSnapshot(String name) {
+        LatencyHistogramSnapshot latencyHistogramSnapshot = new LatencyHistogramSnapshot();
+        latencyHistogramSnapshot.name = name;
+        latencyHistogramSnapshot.subBucketBits = SUB_BUCKET_BITS;
+        latencyHistogramSnapshot.totalCount = totalCount;
+        latencyHistogramSnapshot.sumNanos = sumNanos;
+        latencyHistogramSnapshot.minNanos = getMinNanos();
+        latencyHistogramSnapshot.maxNanos = maxNanos;
+        int usedBuckets = (int) Arrays.stream(counts).filter(count -> count > 0).count();
+        latencyHistogramSnapshot.bucketIndices = new int[usedBuckets];
+        latencyHistogramSnapshot.bucketCounts = new long[usedBuckets];
+        int j = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            if (counts[i] > 0) {
+                latencyHistogramSnapshot.bucketIndices[j] = i;
+                latencyHistogramSnapshot.bucketCounts[j] = counts[i];
+                j++;
+            }
+        }
+        return latencyHistogramSnapshot;
+    }
+
+    public static LatencyHistogram fromSnapshot(LatencyHistogramSnapshot latencyHistogramSnapshot) {
+        if (latencyHistogramSnapshot.subBucketBits != SUB_BUCKET_BITS) {
+            throw new IllegalArgumentException("The histogram " + latencyHistogramSnapshot.name + " has " + latencyHistogramSnapshot.subBucketBits + " sub bucket bits instead of " + SUB_BUCKET_BITS);
+        }
+        LatencyHistogram latencyHistogram = new LatencyHistogram();
+        for (int i = 0; i < latencyHistogramSnapshot.bucketIndices.length; i++) {
+            latencyHistogram.counts[latencyHistogramSnapshot.bucketIndices[i]] += latencyHistogramSnapshot.bucketCounts[i];
+        }
+        latencyHistogram.totalCount = latencyHistogramSnapshot.totalCount;
+        latencyHistogram.sumNanos = latencyHistogramSnapshot.sumNanos;
+        latencyHistogram.minNanos = latencyHistogramSnapshot.totalCount == 0 ? Long.MAX_VALUE : latencyHistogramSnapshot.minNanos;
+        latencyHistogram.maxNanos = latencyHistogramSnapshot.maxNanos;
+        return latencyHistogram;
+    }
+
+    static int getBucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        // position of the highest bit, the SUB_BUCKET_BITS bits below it select the linear sub bucket
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        if (magnitude > MAX_MAGNITUDE) {
+            return BUCKET_COUNT - 1;
+        }
+        int shift = magnitude - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long getBucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,173 @@
+package berlin.tu.csb.controller;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reports throughput, latency percentiles and error and retry rates per operation and use case while a phase is running.
+ * Every worker thread records into its own OperationMetrics without locks, a reporter thread drains and merges them
+ * once per interval, logs one line per operation and appends the same values to a csv file.
+ **/
+public class LiveMetricsReporter {
+    private static final String TOTAL = "total";
+    private static final String CSV_HEADER = "timestampMillis,operation,throughputPerSecond,p50Millis,p95Millis,p99Millis,maxMillis,errorsPerSecond,retriesPerSecond";
+
+    static Logger logger = LogManager.getLogger(LiveMetricsReporter.class);
+
+    private static final List<OperationMetrics> operationMetricsList = new CopyOnWriteArrayList<>();
+    private static ScheduledExecutorService reporter;
+    private static BufferedWriter csvWriter;
+    private static long lastReportNanos;
+
+    // called once per operation type by every worker thread
+    static OperationMetrics register(String operationName) {
+        OperationMetrics operationMetrics = new OperationMetrics(operationName, false);
+        operationMetricsList.add(operationMetrics);
+        return operationMetrics;
+    }
+
+    static OperationMetrics registerUseCase(String useCaseName) {
+        OperationMetrics operationMetrics = new OperationMetrics("useCase." + useCaseName, true);
+        operationMetricsList.add(operationMetrics);
+        return operationMetrics;
+    }
+
+    public static synchronized void start(Path csvFilePath, long intervalInMilliseconds) {
+        if (reporter != null) {
+            return;
+        }
+        try {
+            Files.createDirectories(csvFilePath.getParent());
+            csvWriter = Files.newBufferedWriter(csvFilePath, StandardCharsets.UTF_8);
+            csvWriter.write(CSV_HEADER);
+            csvWriter.newLine();
+        } catch (IOException e) {
+            logger.error("Could not create " + csvFilePath + ", the live metrics are only logged: " + e.getMessage());
+            csvWriter = null;
+        }
+        // everything recorded before the start belongs to no interval
+        operationMetricsList.forEach(operationMetrics -> drain(operationMetrics, new LatencyHistogram(), new long[2]));
+        lastReportNanos = System.nanoTime();
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "live-metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(LiveMetricsReporter::reportInterval, intervalInMilliseconds, intervalInMilliseconds, TimeUnit.MILLISECONDS);
+    }
+
+    // reports the last, partial interval and closes the csv file
+    public static void stop() {
+        ScheduledExecutorService stoppedReporter;
+        synchronized (LiveMetricsReporter.class) {
+            if (reporter == null) {
+                return;
+            }
+            stoppedReporter = reporter;
+            reporter = null;
+        }
+        // waits outside of the lock, a scheduled report that is waiting for it could not finish otherwise
+        stoppedReporter.shutdownNow();
+        try {
+            stoppedReporter.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (LiveMetricsReporter.class) {
+            report();
+            if (csvWriter != null) {
+                try {
+                    csvWriter.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                csvWriter = null;
+            }
+        }
+    }
+
+    // a scheduled report that only got the lock after stop() took the reporter away is already part of the final report
+    private static synchronized void reportInterval() {
+        if (reporter != null) {
+            report();
+        }
+    }
+
+    private static synchronized void report() {
+        long now = System.nanoTime();
+        double intervalSeconds = (now - lastReportNanos) / 1_000_000_000d;
+        lastReportNanos = now;
+        if (intervalSeconds <= 0) {
+            return;
+        }
+
+        // operation name -> merged histogram, and errors and retries of all threads
+        Map<String, LatencyHistogram> histogramMap = new TreeMap<>();
+        Map<String, long[]> errorsAndRetriesMap = new TreeMap<>();
+        LatencyHistogram totalHistogram = new LatencyHistogram();
+        long[] totalErrorsAndRetries = new long[2];
+        for (OperationMetrics operationMetrics : operationMetricsList) {
+            LatencyHistogram latencyHistogram = histogramMap.computeIfAbsent(operationMetrics.operationName, key -> new LatencyHistogram());
+            long[] errorsAndRetries = errorsAndRetriesMap.computeIfAbsent(operationMetrics.operationName, key -> new long[2]);
+            long errorsBefore = errorsAndRetries[0];
+            long retriesBefore = errorsAndRetries[1];
+            LatencyHistogram intervalHistogram = new LatencyHistogram();
+            drain(operationMetrics, intervalHistogram, errorsAndRetries);
+            latencyHistogram.merge(intervalHistogram);
+            if (!operationMetrics.isUseCase) {
+                totalHistogram.merge(intervalHistogram);
+                totalErrorsAndRetries[0] += errorsAndRetries[0] - errorsBefore;
+                totalErrorsAndRetries[1] += errorsAndRetries[1] - retriesBefore;
+            }
+        }
+
+        long timestampMillis = System.currentTimeMillis();
+        writeLine(timestampMillis, TOTAL, totalHistogram, totalErrorsAndRetries, intervalSeconds);
+        histogramMap.forEach((operationName, latencyHistogram) -> writeLine(timestampMillis, operationName, latencyHistogram, errorsAndRetriesMap.get(operationName), intervalSeconds));
+        if (csvWriter != null) {
+            try {
+                csvWriter.flush();
+            } catch (IOException e) {
+                logger.error("Writing the live metrics failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private static void drain(OperationMetrics operationMetrics, LatencyHistogram latencyHistogram, long[] errorsAndRetries) {
+        operationMetrics.latencyHistogram.drainInto(latencyHistogram);
+        errorsAndRetries[0] += operationMetrics.errors.getAndSet(0);
+        errorsAndRetries[1] += operationMetrics.retries.getAndSet(0);
+    }
+
+    private static void writeLine(long timestampMillis, String operationName, LatencyHistogram latencyHistogram, long[] errorsAndRetries, double intervalSeconds) {
+        double throughput = latencyHistogram.getCount() / intervalSeconds;
+        double errorRate = errorsAndRetries[0] / intervalSeconds;
+        double retryRate = errorsAndRetries[1] / intervalSeconds;
+        String message = String.format("%-40s %8.1f ops/s, p50 %7.2f ms, p95 %7.2f ms, p99 %7.2f ms, %.1f errors/s, %.1f retries/s", operationName, throughput, latencyHistogram.getValueAtPercentileInMilliseconds(50), latencyHistogram.getValueAtPercentileInMilliseconds(95), latencyHistogram.getValueAtPercentileInMilliseconds(99), errorRate, retryRate);
+        logger.info(message);
+
+        if (csvWriter == null) {
+            return;
+        }
+        try {
+            csvWriter.write(String.format(Locale.ROOT, "%d,%s,%.2f,%.3f,%.3f,%.3f,%.3f,%.2f,%.2f", timestampMillis, operationName, throughput, latencyHistogram.getValueAtPercentileInMilliseconds(50), latencyHistogram.getValueAtPercentileInMilliseconds(95), latencyHistogram.getValueAtPercentileInMilliseconds(99), latencyHistogram.getMaxNanos() / 1_000_000d, errorRate, retryRate));
+            csvWriter.newLine();
+        } catch (IOException e) {
+            logger.error("Writing the live metrics failed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package berlin.tu.csb.controller;
+
+import java.sql.Connection;
+
+// a connection handed out by the LoadBalancingDataSource, it knows the node it is connected to
+public interface LoadBalancedConnection extends Connection {
+    String getServerAddress();
+}
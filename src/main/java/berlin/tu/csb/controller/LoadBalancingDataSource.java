@@ -0,0 +1,292 @@
+package berlin.tu.csb.controller;
+
+import berlin.tu.csb.model.BenchmarkConfig;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.postgresql.ds.PGSimpleDataSource;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Spreads the connection checkouts of all threads over the pools of all nodes of the SUT.
+ * The node is picked per checkout by the configured policy ("round-robin", "least-outstanding" or "latency-aware").
+ * A background health check pings every node; nodes that fail the check or a checkout are skipped until they answer again.
+ **/
+public class LoadBalancingDataSource implements DataSource {
+    private static final long DEFAULT_HEALTH_CHECK_INTERVAL_MILLIS = 1000;
+    private static final int HEALTH_CHECK_TIMEOUT_SECONDS = 2;
+    private static final double LATENCY_SMOOTHING = 0.3;
+
+    static Logger logger = LogManager.getLogger(LoadBalancingDataSource.class);
+
+    static class Node {
+        final String serverAddress;
+        final DataSource pool;
+        final PGSimpleDataSource healthCheckDataSource;
+        Connection healthCheckConnection;
+        volatile boolean healthy = true;
+        // connections of this node that are currently checked out
+        final AtomicInteger outstanding = new AtomicInteger();
+        final AtomicLong served = new AtomicLong();
+        // smoothed round trip time of the health check query
+        volatile double latencyNanos = 0;
+
+        Node(String serverAddress, DataSource pool, PGSimpleDataSource healthCheckDataSource) {
+            this.serverAddress = serverAddress;
+            this.pool = pool;
+            this.healthCheckDataSource = healthCheckDataSource;
+        }
+    }
+
+    interface LoadBalancingPolicy {
+        Node pick(List<Node> nodeList);
+    }
+
+    static class RoundRobinPolicy implements LoadBalancingPolicy {
+        private final AtomicInteger next = new AtomicInteger();
+
+        public Node pick(List<Node> nodeList) {
+            return nodeList.get(Math.floorMod(next.getAndIncrement(), nodeList.size()));
+        }
+    }
+
+    static class LeastOutstandingPolicy implements LoadBalancingPolicy {
+        public Node pick(List<Node> nodeList) {
+            Node pickedNode = nodeList.get(0);
+            for (Node node : nodeList) {
+                if (node.outstanding.get() < pickedNode.outstanding.get()) {
+                    pickedNode = node;
+                }
+            }
+            return pickedNode;
+        }
+    }
+
+    static class LatencyAwarePolicy implements LoadBalancingPolicy {
+        public Node pick(List<Node> nodeList) {
+            // weighting the latency with the load keeps all threads from piling onto the single fastest node
+            Node pickedNode = nodeList.get(0);
+            double pickedCost = Double.MAX_VALUE;
+            for (Node node : nodeList) {
+                double cost = Math.max(1, node.latencyNanos) * (node.outstanding.get() + 1);
+                if (cost < pickedCost) {
+                    pickedNode = node;
+                    pickedCost = cost;
+                }
+            }
+            return pickedNode;
+        }
+    }
+
+    private final List<Node> nodeList = new ArrayList<>();
+    private final LoadBalancingPolicy loadBalancingPolicy;
+    private final ScheduledExecutorService healthChecker;
+
+    public LoadBalancingDataSource(String dbName, String dbUserName, int dbPort, String[] serverAddresses, BenchmarkConfig benchmarkConfig) {
+        for (String serverAddress : serverAddresses) {
+            PGSimpleDataSource healthCheckDataSource = ConnectionPoolController.createPGSimpleDataSource(dbName, dbUserName, dbPort, serverAddress);
+            healthCheckDataSource.setConnectTimeout(HEALTH_CHECK_TIMEOUT_SECONDS);
+            healthCheckDataSource.setSocketTimeout(HEALTH_CHECK_TIMEOUT_SECONDS);
+            healthCheckDataSource.setApplicationName("BasicExample-health-check");
+            nodeList.add(new Node(serverAddress, ConnectionPoolController.getDataSource(dbName, dbUserName, dbPort, serverAddress, benchmarkConfig), healthCheckDataSource));
+        }
+        this.loadBalancingPolicy = getLoadBalancingPolicy(benchmarkConfig.loadBalancingPolicy);
+
+        long healthCheckIntervalMillis = benchmarkConfig.loadBalancingHealthCheckIntervalInMilliseconds > 0 ? benchmarkConfig.loadBalancingHealthCheckIntervalInMilliseconds : DEFAULT_HEALTH_CHECK_INTERVAL_MILLIS;
+        this.healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "load-balancer-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthChecker.scheduleWithFixedDelay(this::checkHealth, 0, healthCheckIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static LoadBalancingPolicy getLoadBalancingPolicy(String loadBalancingPolicyName) {
+        switch (loadBalancingPolicyName == null ? "" : loadBalancingPolicyName) {
+            case "round-robin":
+                return new RoundRobinPolicy();
+            case "least-outstanding":
+                return new LeastOutstandingPolicy();
+            case "latency-aware":
+                return new LatencyAwarePolicy();
+            default:
+                throw new IllegalArgumentException("Unknown load balancing policy " + loadBalancingPolicyName);
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        List<Node> candidateList = getHealthyNodes();
+        SQLException lastException = null;
+        // fail over to the next node if the picked one can not hand out a connection
+        while (!candidateList.isEmpty()) {
+            Node node = loadBalancingPolicy.pick(candidateList);
+            node.outstanding.incrementAndGet();
+            try {
+                Connection connection = node.pool.getConnection();
+                node.served.incrementAndGet();
+                return wrap(connection, node);
+            } catch (SQLException e) {
+                node.outstanding.decrementAndGet();
+                markUnhealthy(node, e);
+                candidateList.remove(node);
+                lastException = e;
+            }
+        }
+        throw lastException != null ? lastException : new SQLException("No node of the SUT is available", "08001");
+    }
+
+    int getNodeCount() {
+        return nodeList.size();
+    }
+
+    // called by the TransactionExecutor when the connection to a node broke, null if no connection could be checked out (getConnection marked the nodes already)
+    void reportConnectionFailure(String serverAddress, SQLException e) {
+        if (serverAddress != null) {
+            nodeList.stream().filter(node -> node.serverAddress.equals(serverAddress)).findFirst().ifPresent(node -> markUnhealthy(node, e));
+        }
+    }
+
+    private List<Node> getHealthyNodes() {
+        List<Node> healthyNodeList = new ArrayList<>();
+        for (Node node : nodeList) {
+            if (node.healthy) {
+                healthyNodeList.add(node);
+            }
+        }
+        // if every node looks down the health check may just be behind, so try all of them instead of failing right away
+        return healthyNodeList.isEmpty() ? new ArrayList<>(nodeList) : healthyNodeList;
+    }
+
+    private void markUnhealthy(Node node, SQLException e) {
+        if (node.healthy) {
+            node.healthy = false;
+            logger.warn(String.format("Node %s marked as down: { state => %s, message => %s }", node.serverAddress, e.getSQLState(), e.getMessage()));
+        }
+    }
+
+    private void checkHealth() {
+        for (Node node : nodeList) {
+            try {
+                if (node.healthCheckConnection == null || node.healthCheckConnection.isClosed()) {
+                    node.healthCheckConnection = node.healthCheckDataSource.getConnection();
+                }
+                long startNanos = System.nanoTime();
+                try (Statement statement = node.healthCheckConnection.createStatement()) {
+                    statement.setQueryTimeout(HEALTH_CHECK_TIMEOUT_SECONDS);
+                    statement.execute("SELECT 1");
+                }
+                long latencyNanos = System.nanoTime() - startNanos;
+                node.latencyNanos = node.latencyNanos == 0 ? latencyNanos : (1 - LATENCY_SMOOTHING) * node.latencyNanos + LATENCY_SMOOTHING * latencyNanos;
+                if (!node.healthy) {
+                    node.healthy = true;
+                    logger.info("Node " + node.serverAddress + " is available again");
+                }
+            } catch (SQLException e) {
+                markUnhealthy(node, e);
+                closeHealthCheckConnection(node);
+            }
+        }
+    }
+
+    private static void closeHealthCheckConnection(Node node) {
+        if (node.healthCheckConnection != null) {
+            try {
+                node.healthCheckConnection.close();
+            } catch (SQLException ignored) {
+                // the connection is dropped anyway
+            }
+            node.healthCheckConnection = null;
+        }
+    }
+
+    // stops the health check, the pools themselves are closed by the ConnectionPoolController
+    public void close() {
+        healthChecker.shutdownNow();
+        try {
+            healthChecker.awaitTermination(HEALTH_CHECK_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Node node : nodeList) {
+            closeHealthCheckConnection(node);
+            logger.info(String.format("Node %s served %d connections, health check latency %.2f ms", node.serverAddress, node.served.get(), node.latencyNanos / 1_000_000d));
+        }
+    }
+
+    private static Connection wrap(Connection connection, Node node) {
+        AtomicBoolean closed = new AtomicBoolean(false);
+        return (Connection) Proxy.newProxyInstance(LoadBalancedConnection.class.getClassLoader(), new Class<?>[]{LoadBalancedConnection.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getServerAddress":
+                    return node.serverAddress;
+                case "close":
+                    if (closed.compareAndSet(false, true)) {
+                        node.outstanding.decrementAndGet();
+                    }
+                    break;
+            }
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        });
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("The credentials are configured per pool");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return 0;
+    }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
@@ -35,13 +35,15 @@ public class LoadPhaseGenerator implements Runnable {
         // Coordination Phase: All threads wait until the set time has come
         logger.info("thread started");
         //logger.error("Test error");
+        boolean useCopy = "copy".equals(benchmarkConfig.loadPhaseInsertMode);
         while (persistenceController.stateController.getCustomerListSize() < benchmarkConfig.dbCustomerInsertsLoadPhase / benchmarkConfig.threadCountLoad
                 || persistenceController.stateController.getItemListSize() < benchmarkConfig.dbItemInsertsLoadPhase / benchmarkConfig.threadCountLoad
                 || persistenceController.stateController.getOrderSize() < benchmarkConfig.dbOrderInsertsLoadPhase / benchmarkConfig.threadCountLoad) {
 
             if(persistenceController.stateController.getCustomerListSize() < benchmarkConfig.dbCustomerInsertsLoadPhase / benchmarkConfig.threadCountLoad) {
                 logger.info("Inserting " + benchmarkConfig.dbCustomerInsertsLoadPhase / benchmarkConfig.threadCountLoad + " Customer to the DB");
-                if(!workerGeneratorController.bulkInsertNewCustomers(benchmarkConfig.dbCustomerInsertsLoadPhase / benchmarkConfig.threadCountLoad)) {
+                long amount = benchmarkConfig.dbCustomerInsertsLoadPhase / benchmarkConfig.threadCountLoad;
+                if(!(useCopy ? workerGeneratorController.copyNewCustomers(amount) : workerGeneratorController.bulkInsertNewCustomers(amount))) {
                     logger.error("Error while running bulkInsertNewCustomers");
                 }
                 continue;
@@ -49,7 +51,8 @@ public class LoadPhaseGenerator implements Runnable {
 
             if(persistenceController.stateController.getItemListSize() < benchmarkConfig.dbItemInsertsLoadPhase / benchmarkConfig.threadCountLoad) {
                 logger.info("Inserting " + benchmarkConfig.dbItemInsertsLoadPhase / benchmarkConfig.threadCountLoad + " Items to the DB");
-                if(!workerGeneratorController.bulkInsertNewItems(benchmarkConfig.dbItemInsertsLoadPhase / benchmarkConfig.threadCountLoad)) {
+                long amount = benchmarkConfig.dbItemInsertsLoadPhase / benchmarkConfig.threadCountLoad;
+                if(!(useCopy ? workerGeneratorController.copyNewItems(amount) : workerGeneratorController.bulkInsertNewItems(amount))) {
                     logger.error("Error while running bulkInsertNewItems");
                 }
                 continue;
@@ -57,7 +60,8 @@ public class LoadPhaseGenerator implements Runnable {
 
             if(persistenceController.stateController.getOrderSize() < benchmarkConfig.dbOrderInsertsLoadPhase / benchmarkConfig.threadCountLoad) {
                 logger.info("Inserting " + benchmarkConfig.dbOrderInsertsLoadPhase / benchmarkConfig.threadCountLoad + " Orders to the DB");
-                if(!workerGeneratorController.bulkInsertNewOrdersWithOrderLines(benchmarkConfig.dbOrderInsertsLoadPhase / benchmarkConfig.threadCountLoad)) {
+                long amount = benchmarkConfig.dbOrderInsertsLoadPhase / benchmarkConfig.threadCountLoad;
+                if(!(useCopy ? workerGeneratorController.copyNewOrdersWithOrderLines(amount) : workerGeneratorController.bulkInsertNewOrdersWithOrderLines(amount))) {
                     logger.error("Error while running bulkInsertNewOrdersWithOrderLines");
                 }
                 continue;
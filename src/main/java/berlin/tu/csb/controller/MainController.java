@@ -1,6 +1,10 @@
 package berlin.tu.csb.controller;
 
+import berlin.tu.csb.model.BatchSizeSample;
 import berlin.tu.csb.model.BenchmarkConfig;
+import berlin.tu.csb.model.LoadThroughput;
+import berlin.tu.csb.model.TransactionStatistics;
+import berlin.tu.csb.model.UseCaseStatistics;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import org.apache.logging.log4j.LogManager;
@@ -34,14 +38,16 @@ public class MainController {
         String runOrLoad = "run";
         int dbCustomerInsertsLoadPhase = 100000;
         int dbItemInsertsLoadPhase = 2000 ;
+        // every vm measures its clock offset against the same node, without it the first server of the vm is used
+        String clockReferenceAddress = null;
 
         System.out.println("Present Project Directory : "+ System.getProperty("user.dir"));
 
 
         if(args.length > 0 && args[0] != null && args[0].equals("run")) {
-            if(args.length != 5) {
+            if(args.length != 5 && args.length != 6) {
                 System.out.println("Number of run arguments are not correct. Fallback to local execution mode.");
-                System.out.printf("Correct usage of parameters:%n 1 - run %n 2 - server adress%n 3 - seed for pseudo generator as long%n 4 - run time of benchmark in minutes%n 5 - amount of threads to run%n");
+                System.out.printf("Correct usage of parameters:%n 1 - run %n 2 - server adress%n 3 - seed for pseudo generator as long%n 4 - run time of benchmark in minutes%n 5 - amount of threads to run%n 6 - optional: address of the clock reference node, the same for all vms%n");
                 try {
                     String content = new String(Files.readAllBytes(Paths.get(System.getProperty("user.dir")+"\\terraform\\public_ip.csv")));
                     serverAddresses = content.split(",");
@@ -55,13 +61,16 @@ public class MainController {
                 seed = Long.parseLong(args[2]);
                 runTimeInMinutes = Integer.parseInt(args[3]);
                 threadCount = Integer.parseInt(args[4]);
+                if(args.length == 6) {
+                    clockReferenceAddress = args[5];
+                }
             }
         }
         else if (args.length > 0 && args[0] != null && args[0].equals("load")) {
             runOrLoad = "load";
-            if(args.length != 6) {
+            if(args.length != 6 && args.length != 7) {
                 System.out.println("Number of run arguments are not correct. Fallback to local execution mode.");
-                System.out.printf("Correct usage of parameters:%n 1 - load %n 2 - server adress%n 3 - seed for pseudo generator as long%n 4 - Amount of Customers to be created %n 5 - Amount of Items to be created %n 6 - amount of threads to run%n");
+                System.out.printf("Correct usage of parameters:%n 1 - load %n 2 - server adress%n 3 - seed for pseudo generator as long%n 4 - Amount of Customers to be created %n 5 - Amount of Items to be created %n 6 - amount of threads to run%n 7 - optional: address of the clock reference node, the same for all vms%n");
                 try {
                     String content = new String(Files.readAllBytes(Paths.get(System.getProperty("user.dir") + "\\terraform\\public_ip.csv")));
                     serverAddresses = content.split(",");
@@ -77,6 +86,9 @@ public class MainController {
                 dbCustomerInsertsLoadPhase = Integer.parseInt(args[3]);
                 dbItemInsertsLoadPhase = Integer.parseInt(args[4]);
                 threadCount = Integer.parseInt(args[5]);
+                if(args.length == 7) {
+                    clockReferenceAddress = args[6];
+                }
             }
         } else {
             try {
@@ -103,6 +115,40 @@ public class MainController {
         benchmarkConfig.seed = seed;
         benchmarkConfig.minRunTimeOfRunPhaseInMinutes = runTimeInMinutes;
         benchmarkConfig.initialWaitTimeForCoordinationInSeconds = 5;
+        // every thread gets its own connection to its server plus some headroom for the state sync on the first server
+        benchmarkConfig.connectionPoolMaxSizePerServer = threadCount / serverAddresses.length + 2;
+        benchmarkConfig.connectionPoolMinIdlePerServer = benchmarkConfig.connectionPoolMaxSizePerServer;
+        benchmarkConfig.connectionPoolTimeoutInMilliseconds = 30000;
+        benchmarkConfig.connectionPoolSampleIntervalInMilliseconds = 1000;
+        // e.g. "SET default_transaction_use_follower_reads = true" - note that this makes every transaction of the session read only
+        benchmarkConfig.connectionInitSql = "";
+        benchmarkConfig.loadGenerationMode = "closed";
+        benchmarkConfig.targetArrivalRatePerSecond = 100 * threadCount;
+        benchmarkConfig.arrivalDistribution = "poisson";
+        benchmarkConfig.loadPhaseInsertMode = "copy";
+        benchmarkConfig.bulkInsertInitialBatchSize = 100;
+        benchmarkConfig.bulkInsertMinBatchSize = 10;
+        benchmarkConfig.bulkInsertMaxBatchSize = 5000;
+        benchmarkConfig.bulkInsertTargetCommitLatencyInMilliseconds = 500;
+        benchmarkConfig.transactionMaxRetries = 3;
+        benchmarkConfig.transactionRetryInitialBackoffInMilliseconds = 100;
+        benchmarkConfig.transactionRetryMaxBackoffInMilliseconds = 2000;
+        benchmarkConfig.transactionDeadlineInMilliseconds = 10000;
+        benchmarkConfig.preloadFetchSize = 1000;
+        benchmarkConfig.preloadRangesPerTable = 16;
+        // one preload connection per pool slot that is not needed yet, over all servers
+        benchmarkConfig.preloadParallelism = Math.min(16, benchmarkConfig.connectionPoolMaxSizePerServer * serverAddresses.length);
+        benchmarkConfig.loadBalancingPolicy = "static";
+        benchmarkConfig.loadBalancingHealthCheckIntervalInMilliseconds = 1000;
+        benchmarkConfig.traceQueueCapacity = 65536;
+        benchmarkConfig.traceSegmentSizeInBytes = 64L * 1024 * 1024;
+        benchmarkConfig.traceFlushIntervalInMilliseconds = 1000;
+        benchmarkConfig.liveMetricsIntervalInMilliseconds = 1000;
+        benchmarkConfig.sqlDebugSampleEveryNthStatement = 0;
+        benchmarkConfig.clockOffsetSampleIntervalInMilliseconds = 10000;
+        benchmarkConfig.clockOffsetProbesPerSample = 5;
+        benchmarkConfig.clockReferenceAddress = clockReferenceAddress != null ? clockReferenceAddress : serverAddresses[0];
+        benchmarkConfig.jfrRecordingMode = "off";
         benchmarkConfig.useCasesProbabilityDistribution = new LinkedHashMap<>();
         benchmarkConfig.useCasesProbabilityDistribution.put("berlin.tu.csb.controller.RunPhaseGenerator$fetchRandomTopSellerItem", 35);
         benchmarkConfig.useCasesProbabilityDistribution.put("berlin.tu.csb.controller.RunPhaseGenerator$fetchRandomItem", 20);
@@ -151,7 +197,8 @@ public class MainController {
 
         // String pickedServerAddress = serverAddresses[ThreadLocalRandom.current().nextInt(0, serverAddresses.length)];
 
-        databaseController = new DatabaseController("tpc_w_light", "root", 26257, serverAddresses[0]);
+        databaseController = new DatabaseController("tpc_w_light", "root", 26257, serverAddresses[0], benchmarkConfig);
+        ConnectionPoolController.startUsageSampling(Paths.get(System.getProperty("user.dir"), "workload", dateString, "connection_pool.csv"), benchmarkConfig.connectionPoolSampleIntervalInMilliseconds > 0 ? benchmarkConfig.connectionPoolSampleIntervalInMilliseconds : 1000);
 
         //databaseController.dao.truncateAllTables();
 
@@ -175,37 +222,34 @@ public class MainController {
 
         List<Thread> threadList = new ArrayList<>();
         List<PersistenceController> persistenceControllerList = new ArrayList<>();
+        List<RunPhaseGenerator> runPhaseGeneratorList = new ArrayList<>();
 
         SeededRandomHelper seededRandomHelperPre = new SeededRandomHelper(benchmarkConfig.seed);
-        PersistenceController persistenceControllerPre = new PersistenceController(new DatabaseController("tpc_w_light", "root", 26257, serverAddresses[0]), new StateController(seededRandomHelperPre));
-
-        logger.info("Fetching Customers from DB...");
-        persistenceControllerPre.syncCustomerStateWithDB();
-        logger.info("Fetched " + persistenceControllerPre.stateController.getCustomerListSize() + " Customer from DB.");
-
-        logger.info("Fetching Items from DB...");
-        persistenceControllerPre.syncItemStateWithDB();
-        logger.info("Fetched " + persistenceControllerPre.stateController.getItemListSize() + " Items from DB.");
+        PersistenceController persistenceControllerPre = new PersistenceController(new DatabaseController("tpc_w_light", "root", 26257, serverAddresses[0], benchmarkConfig), new StateController(seededRandomHelperPre));
 
-        logger.info("Fetching Orders from DB...");
-        persistenceControllerPre.syncOrderStateWithDB();
-        logger.info("Fetched " + persistenceControllerPre.stateController.getOrderSize() + " Orders from DB.");
-
-        logger.info("Fetching OrderLines from DB...");
-        persistenceControllerPre.syncOrderLineStateWithDB();
-        logger.info("Fetched " + persistenceControllerPre.stateController.getOrderLineSize() + " OrderLines from DB.");
+        logger.info("Fetching Customers, Items, Orders and OrderLines from DB...");
+        StatePreloadController statePreloadController = new StatePreloadController("tpc_w_light", "root", 26257, serverAddresses, benchmarkConfig);
+        if (!statePreloadController.preload(persistenceControllerPre.stateController)) {
+            logger.error("The state could not be loaded completely, the run phase works on a partial state.");
+        }
+        logger.info("Fetched " + persistenceControllerPre.stateController.getCustomerListSize() + " Customer, " + persistenceControllerPre.stateController.getItemListSize() + " Items, " + persistenceControllerPre.stateController.getOrderSize() + " Orders and " + persistenceControllerPre.stateController.getOrderLineSize() + " OrderLines from DB.");
 
 
+        LoadBalancingDataSource loadBalancingDataSource = createLoadBalancingDataSource(serverAddresses, benchmarkConfig);
+        MetricsRegistry.reset();
+        JfrRecordingController.start(Paths.get(System.getProperty("user.dir"), "workload", dateString, "run.jfr"), benchmarkConfig);
+        LiveMetricsReporter.start(Paths.get(System.getProperty("user.dir"), "workload", dateString, "live_metrics_run.csv"), benchmarkConfig.liveMetricsIntervalInMilliseconds > 0 ? benchmarkConfig.liveMetricsIntervalInMilliseconds : 1000);
+        ClockOffsetController.start(ConnectionPoolController.getDataSource("tpc_w_light", "root", 26257, benchmarkConfig.clockReferenceAddress, benchmarkConfig), benchmarkConfig.clockReferenceAddress, benchmarkConfig);
         for (int i = 1; i <= benchmarkConfig.threadCountRun; i++) {
-            String pickedServerAddress = serverAddresses[i % serverAddresses.length];
-
             // Have a PersistenceController per thread to manage the current database part that is used by this thread so they dont interfere with each other
             SeededRandomHelper seededRandomHelper = new SeededRandomHelper(benchmarkConfig.seed+i);
-            PersistenceController persistenceController = new PersistenceController(new DatabaseController("tpc_w_light", "root", 26257, pickedServerAddress), new StateController(seededRandomHelper));
+            PersistenceController persistenceController = new PersistenceController(createDatabaseController(serverAddresses, i, loadBalancingDataSource, benchmarkConfig), new StateController(seededRandomHelper));
             persistenceControllerList.add(persistenceController);
+            persistenceController.databaseController.workloadQueryController.startTraceSink(Paths.get(System.getProperty("user.dir"), "workload", dateString), "run", benchmarkConfig);
             persistenceController.syncPersistenceController(persistenceControllerPre);
 
             RunPhaseGenerator runPhaseGenerator = new RunPhaseGenerator(persistenceController, seededRandomHelper, startTime, runTimeInSeconds, endTime, benchmarkConfig);
+            runPhaseGeneratorList.add(runPhaseGenerator);
             //workloadGenerator.run();
 
             Thread thread = new Thread(runPhaseGenerator);
@@ -222,39 +266,51 @@ public class MainController {
             e.printStackTrace();
         }
         long t1_2 = System.currentTimeMillis();
+        LiveMetricsReporter.stop();
+        JfrRecordingController.stop();
+        ClockOffsetController.stop(Paths.get(System.getProperty("user.dir"), "workload", dateString, "clock_offsets_run.json"));
 
-        int sqlCounter = 0;
-        for (PersistenceController persistenceController : persistenceControllerList) {
-            //System.out.println("Thread-" + counter + ": " + persistenceController.databaseController.dao.sqlLog);
-            //counter++;
-            sqlCounter += persistenceController.databaseController.dao.sqlLog.size();
+        if (loadBalancingDataSource != null) {
+            loadBalancingDataSource.close();
         }
+        ConnectionPoolController.stopUsageSampling();
+        ConnectionPoolController.closeAll();
 
-
-
-
-        //System.out.println(databaseController.dao.sqlLog);
+        long sqlCounter = MetricsRegistry.getTotalStatements();
         System.out.println("Log size:" + sqlCounter);
+        reportOperationCounters();
+        reportTransactionStatistics(persistenceControllerList);
+        reportUseCaseStatistics(runPhaseGeneratorList);
         System.out.println("Executed " + sqlCounter + " in " + (t1_2-t1_1)/1000 + " seconds. " + sqlCounter / runTimeInSeconds + "t/s AVG of planned time and " + sqlCounter / ((t1_2-t1_1)/1000) + " t/s AVG on the actual time used");
 
 
-        // use GSON to create json objects of the safed workload queries and safe them to a directory
+        // use GSON to safe the per thread statistics to a directory
         Gson gson = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
-        for (PersistenceController persistenceController: persistenceControllerList) {
+        for (int workerIndex = 0; workerIndex < persistenceControllerList.size(); workerIndex++) {
+            PersistenceController persistenceController = persistenceControllerList.get(workerIndex);
 
             System.out.println("Customers in DB:" + persistenceController.stateController.getCustomerListSize());
             System.out.println("Items in DB:" + persistenceController.stateController.getItemListSize());
             System.out.println("Orders in DB:" + persistenceController.stateController.getOrderSize());
 
-            String json = gson.toJson(persistenceController.databaseController.workloadQueryController.workloadQueryList);
-            //System.out.println(json);
+            // the queries are already on disk, this only waits for the last segment to be written
+            persistenceController.databaseController.workloadQueryController.closeTraceSink();
 
-            long threadId = persistenceController.databaseController.workloadQueryController.workloadContextId;
+            // the files are named by the worker index, the thread id of the trace stays 0 for a thread that ran no query
+            List<BatchSizeSample> batchSizeSampleList = persistenceController.databaseController.dao.adaptiveBatchSizeController.batchSizeSampleList;
+            if (!batchSizeSampleList.isEmpty()) {
+                Path batchSizeFilePath = Paths.get(System.getProperty("user.dir"), "workload", dateString, "batch_sizes_" + workerIndex + ".json");
+                try {
+                    Files.writeString(batchSizeFilePath, gson.toJson(batchSizeSampleList), StandardOpenOption.CREATE_NEW);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
 
-            Path filePath = Paths.get(System.getProperty("user.dir"), "workload", dateString, "run_" + String.valueOf(threadId)+".json");
+            // attempts, retries, retry wait time and aborts per DAO operation of this thread
+            Path transactionsFilePath = Paths.get(System.getProperty("user.dir"), "workload", dateString, "transactions_" + workerIndex + ".json");
             try {
-                Files.createDirectories(filePath.getParent());
-                Files.writeString(filePath, json, StandardOpenOption.CREATE_NEW);
+                Files.writeString(transactionsFilePath, gson.toJson(persistenceController.databaseController.dao.getTransactionStatistics()), StandardOpenOption.CREATE_NEW);
             } catch (IOException e) {
                 e.printStackTrace();
             }
@@ -264,6 +320,95 @@ public class MainController {
 
 
 
+    // null for the "static" policy, there every thread keeps the server it was assigned to
+    private static LoadBalancingDataSource createLoadBalancingDataSource(String[] serverAddresses, BenchmarkConfig benchmarkConfig) {
+        if (benchmarkConfig.loadBalancingPolicy == null || "static".equals(benchmarkConfig.loadBalancingPolicy)) {
+            return null;
+        }
+        logger.info("Balancing the connections over " + serverAddresses.length + " servers with the " + benchmarkConfig.loadBalancingPolicy + " policy");
+        return new LoadBalancingDataSource("tpc_w_light", "root", 26257, serverAddresses, benchmarkConfig);
+    }
+
+    private static DatabaseController createDatabaseController(String[] serverAddresses, int threadNumber, LoadBalancingDataSource loadBalancingDataSource, BenchmarkConfig benchmarkConfig) {
+        if (loadBalancingDataSource != null) {
+            return new DatabaseController(loadBalancingDataSource, benchmarkConfig);
+        }
+        String pickedServerAddress = serverAddresses[threadNumber % serverAddresses.length];
+        return new DatabaseController("tpc_w_light", "root", 26257, pickedServerAddress, benchmarkConfig);
+    }
+
+    private static void reportOperationCounters() {
+        MetricsRegistry.getSnapshot().forEach((operationName, counters) ->
+                logger.info(String.format("%s: %d statements, %d succeeded, %d retries, %d failed", operationName, counters[0], counters[1], counters[2], counters[3])));
+        logger.info(String.format("All operations: %d statements, %d succeeded, %d retries, %d failed", MetricsRegistry.getTotalStatements(), MetricsRegistry.getTotal(MetricsRegistry.Outcome.SUCCESS), MetricsRegistry.getTotal(MetricsRegistry.Outcome.RETRY), MetricsRegistry.getTotal(MetricsRegistry.Outcome.FAILURE)));
+    }
+
+    private static void reportTransactionStatistics(List<PersistenceController> persistenceControllerList) {
+        long attempts = 0;
+        long retries = 0;
+        long aborts = 0;
+        long retryWaitNanos = 0;
+        for (PersistenceController persistenceController : persistenceControllerList) {
+            for (TransactionStatistics transactionStatistics : persistenceController.databaseController.dao.getTransactionStatistics()) {
+                attempts += transactionStatistics.attempts;
+                retries += transactionStatistics.retries;
+                aborts += transactionStatistics.aborts;
+                retryWaitNanos += transactionStatistics.retryWaitNanos;
+            }
+        }
+        logger.info(String.format("Transactions: %d attempts, %d retries (%.1f s backoff), %d aborts", attempts, retries, retryWaitNanos / 1_000_000_000d, aborts));
+    }
+
+    // business transaction view of the run: one entry per use case over all threads, written to use_cases.json
+    private static void reportUseCaseStatistics(List<RunPhaseGenerator> runPhaseGeneratorList) {
+        Map<String, List<UseCaseTimer>> useCaseTimerMap = new LinkedHashMap<>();
+        for (RunPhaseGenerator runPhaseGenerator : runPhaseGeneratorList) {
+            for (UseCaseTimer useCaseTimer : runPhaseGenerator.useCaseTimerList) {
+                useCaseTimerMap.computeIfAbsent(useCaseTimer.useCaseName, useCaseName -> new ArrayList<>()).add(useCaseTimer);
+            }
+        }
+        List<UseCaseStatistics> useCaseStatisticsList = new ArrayList<>();
+        useCaseTimerMap.forEach((useCaseName, useCaseTimerList) -> {
+            UseCaseStatistics useCaseStatistics = UseCaseTimer.merge(useCaseName, useCaseTimerList);
+            useCaseStatisticsList.add(useCaseStatistics);
+            logger.info(String.format("%s: %d invocations (%d failed), %.1f/s, mean %.2f ms, p50 %.2f ms, p95 %.2f ms, p99 %.2f ms, %d statements, %d rows", useCaseName, useCaseStatistics.invocations, useCaseStatistics.failures, useCaseStatistics.throughputPerSecond, useCaseStatistics.meanMillis, useCaseStatistics.p50Millis, useCaseStatistics.p95Millis, useCaseStatistics.p99Millis, useCaseStatistics.statements, useCaseStatistics.rowsReturned));
+        });
+
+        Gson gson = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+        Path filePath = Paths.get(System.getProperty("user.dir"), "workload", dateString, "use_cases.json");
+        try {
+            Files.writeString(filePath, gson.toJson(useCaseStatisticsList), StandardOpenOption.CREATE_NEW);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void reportLoadThroughput(List<PersistenceController> persistenceControllerList) {
+        List<LoadThroughput> loadThroughputList = new ArrayList<>();
+        Map<String, double[]> summedThroughputPerTable = new LinkedHashMap<>();
+        for (PersistenceController persistenceController : persistenceControllerList) {
+            for (LoadThroughput loadThroughput : persistenceController.databaseController.dao.loadThroughputMap.values()) {
+                loadThroughputList.add(loadThroughput);
+                // the load threads run in parallel, so the throughput of the table is the sum of the throughput of each thread
+                double[] summedThroughput = summedThroughputPerTable.computeIfAbsent(loadThroughput.tableName, tableName -> new double[3]);
+                summedThroughput[0] += loadThroughput.rows;
+                summedThroughput[1] += loadThroughput.getRowsPerSecond();
+                summedThroughput[2] += loadThroughput.getMegaBytesPerSecond();
+            }
+        }
+        summedThroughputPerTable.forEach((tableName, summedThroughput) ->
+                logger.info(String.format("Loaded %d rows into %s with %.0f rows/s and %.2f MB/s", (long) summedThroughput[0], tableName, summedThroughput[1], summedThroughput[2])));
+
+        Gson gson = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+        Path filePath = Paths.get(System.getProperty("user.dir"), "workload", dateString, "load_throughput.json");
+        try {
+            Files.createDirectories(filePath.getParent());
+            Files.writeString(filePath, gson.toJson(loadThroughputList), StandardOpenOption.CREATE_NEW);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
     private static void runLoadPhase(String[] serverAddresses, BenchmarkConfig benchmarkConfig) {
         long t1_1 = System.currentTimeMillis();
         long startTime = System.currentTimeMillis() + 5000;
@@ -274,13 +419,17 @@ public class MainController {
         List<Thread> threadList = new ArrayList<>();
         List<PersistenceController> persistenceControllerList = new ArrayList<>();
 
+        LoadBalancingDataSource loadBalancingDataSource = createLoadBalancingDataSource(serverAddresses, benchmarkConfig);
+        MetricsRegistry.reset();
+        JfrRecordingController.start(Paths.get(System.getProperty("user.dir"), "workload", dateString, "load.jfr"), benchmarkConfig);
+        LiveMetricsReporter.start(Paths.get(System.getProperty("user.dir"), "workload", dateString, "live_metrics_load.csv"), benchmarkConfig.liveMetricsIntervalInMilliseconds > 0 ? benchmarkConfig.liveMetricsIntervalInMilliseconds : 1000);
+        ClockOffsetController.start(ConnectionPoolController.getDataSource("tpc_w_light", "root", 26257, benchmarkConfig.clockReferenceAddress, benchmarkConfig), benchmarkConfig.clockReferenceAddress, benchmarkConfig);
         for (int i = 1; i <= benchmarkConfig.threadCountLoad; i++) {
-            String pickedServerAddress = serverAddresses[i % serverAddresses.length];
-
             // Have a PersistenceController per thread to manage the current database part that is used by this thread so they dont interfere with each other
             SeededRandomHelper seededRandomHelper = new SeededRandomHelper(benchmarkConfig.seed-i);
-            PersistenceController persistenceController = new PersistenceController(new DatabaseController("tpc_w_light", "root", 26257, pickedServerAddress), new StateController(seededRandomHelper));
+            PersistenceController persistenceController = new PersistenceController(createDatabaseController(serverAddresses, i, loadBalancingDataSource, benchmarkConfig), new StateController(seededRandomHelper));
             persistenceControllerList.add(persistenceController);
+            persistenceController.databaseController.workloadQueryController.startTraceSink(Paths.get(System.getProperty("user.dir"), "workload", dateString), "load", benchmarkConfig);
             LoadPhaseGenerator loadPhaseGenerator = new LoadPhaseGenerator(persistenceController, seededRandomHelper, benchmarkConfig);
             //workloadGenerator.run();
 
@@ -298,39 +447,52 @@ public class MainController {
             e.printStackTrace();
         }
         long t1_2 = System.currentTimeMillis();
+        LiveMetricsReporter.stop();
+        JfrRecordingController.stop();
+        ClockOffsetController.stop(Paths.get(System.getProperty("user.dir"), "workload", dateString, "clock_offsets_load.json"));
 
-        int sqlCounter = 0;
-        for (PersistenceController persistenceController : persistenceControllerList) {
-            //System.out.println("Thread-" + counter + ": " + persistenceController.databaseController.dao.sqlLog);
-            //counter++;
-            sqlCounter += persistenceController.databaseController.dao.sqlLog.size();
+        if (loadBalancingDataSource != null) {
+            loadBalancingDataSource.close();
         }
+        ConnectionPoolController.stopUsageSampling();
+        ConnectionPoolController.closeAll();
 
-
-
-
-        //System.out.println(databaseController.dao.sqlLog);
+        long sqlCounter = MetricsRegistry.getTotalStatements();
         System.out.println("Log size:" + sqlCounter);
+        reportOperationCounters();
+        reportTransactionStatistics(persistenceControllerList);
         System.out.println("Executed " + sqlCounter + " in " + (t1_2-t1_1)/1000 + " seconds. ");
 
+        reportLoadThroughput(persistenceControllerList);
+
 
-        // use GSON to create json objects of the safed workload queries and safe them to a directory
+        // use GSON to safe the per thread statistics to a directory
         Gson gson = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
-        for (PersistenceController persistenceController: persistenceControllerList) {
+        for (int workerIndex = 0; workerIndex < persistenceControllerList.size(); workerIndex++) {
+            PersistenceController persistenceController = persistenceControllerList.get(workerIndex);
 
             System.out.println("Customers in DB:" + persistenceController.stateController.getCustomerListSize());
             System.out.println("Items in DB:" + persistenceController.stateController.getItemListSize());
             System.out.println("Orders in DB:" + persistenceController.stateController.getOrderSize());
 
-            String json = gson.toJson(persistenceController.databaseController.workloadQueryController.workloadQueryList);
-            //System.out.println(json);
+            // the queries are already on disk, this only waits for the last segment to be written
+            persistenceController.databaseController.workloadQueryController.closeTraceSink();
 
-            long threadId = persistenceController.databaseController.workloadQueryController.workloadContextId;
+            // the files are named by the worker index, the thread id of the trace stays 0 for a thread that ran no query
+            List<BatchSizeSample> batchSizeSampleList = persistenceController.databaseController.dao.adaptiveBatchSizeController.batchSizeSampleList;
+            if (!batchSizeSampleList.isEmpty()) {
+                Path batchSizeFilePath = Paths.get(System.getProperty("user.dir"), "workload", dateString, "batch_sizes_" + workerIndex + ".json");
+                try {
+                    Files.writeString(batchSizeFilePath, gson.toJson(batchSizeSampleList), StandardOpenOption.CREATE_NEW);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
 
-            Path filePath = Paths.get(System.getProperty("user.dir"), "workload", dateString, "load_" + String.valueOf(threadId)+".json");
+            // attempts, retries, retry wait time and aborts per DAO operation of this thread
+            Path transactionsFilePath = Paths.get(System.getProperty("user.dir"), "workload", dateString, "transactions_" + workerIndex + ".json");
             try {
-                Files.createDirectories(filePath.getParent());
-                Files.writeString(filePath, json, StandardOpenOption.CREATE_NEW);
+                Files.writeString(transactionsFilePath, gson.toJson(persistenceController.databaseController.dao.getTransactionStatistics()), StandardOpenOption.CREATE_NEW);
             } catch (IOException e) {
                 e.printStackTrace();
             }
@@ -0,0 +1,69 @@
+package berlin.tu.csb.controller;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts statements and the outcome of every operation over the whole phase, shared by all worker threads.
+ * The counters are LongAdders, so the threads increment them without contending on one memory location.
+ **/
+public class MetricsRegistry {
+    public enum Outcome {
+        SUCCESS,
+        RETRY,
+        FAILURE
+    }
+
+    static class OperationCounters {
+        final LongAdder statements = new LongAdder();
+        final LongAdder[] outcomes = new LongAdder[Outcome.values().length];
+
+        OperationCounters() {
+            for (int i = 0; i < outcomes.length; i++) {
+                outcomes[i] = new LongAdder();
+            }
+        }
+
+        void increment(Outcome outcome) {
+            outcomes[outcome.ordinal()].increment();
+        }
+
+        long get(Outcome outcome) {
+            return outcomes[outcome.ordinal()].sum();
+        }
+    }
+
+    private static final Map<String, OperationCounters> operationCountersMap = new ConcurrentHashMap<>();
+
+    // callers keep the returned counters, so the map is only hit once per operation and thread
+    static OperationCounters getOperationCounters(String operationName) {
+        return operationCountersMap.computeIfAbsent(operationName, key -> new OperationCounters());
+    }
+
+    public static long getTotalStatements() {
+        return operationCountersMap.values().stream().mapToLong(operationCounters -> operationCounters.statements.sum()).sum();
+    }
+
+    public static long getTotal(Outcome outcome) {
+        return operationCountersMap.values().stream().mapToLong(operationCounters -> operationCounters.get(outcome)).sum();
+    }
+
+    // operation name -> statements, successes, retries and failures, sorted by operation name
+    public static Map<String, long[]> getSnapshot() {
+        Map<String, long[]> snapshot = new TreeMap<>();
+        operationCountersMap.forEach((operationName, operationCounters) -> snapshot.put(operationName, new long[]{operationCounters.statements.sum(), operationCounters.get(Outcome.SUCCESS), operationCounters.get(Outcome.RETRY), operationCounters.get(Outcome.FAILURE)}));
+        return snapshot;
+    }
+
+    // starts the counting of a new phase, the counters already handed out keep working
+    public static void reset() {
+        operationCountersMap.values().forEach(operationCounters -> {
+            operationCounters.statements.reset();
+            for (LongAdder outcome : operationCounters.outcomes) {
+                outcome.reset();
+            }
+        });
+    }
+}
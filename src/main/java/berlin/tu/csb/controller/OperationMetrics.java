@@ -0,0 +1,18 @@
+package berlin.tu.csb.controller;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// The live metrics of one operation type or use case recorded by one worker thread, drained by the LiveMetricsReporter.
+class OperationMetrics {
+    final String operationName;
+    final ConcurrentLatencyHistogram latencyHistogram = new ConcurrentLatencyHistogram();
+    final AtomicLong errors = new AtomicLong();
+    final AtomicLong retries = new AtomicLong();
+    // a use case consists of operations, so it is not added to the total again
+    final boolean isUseCase;
+
+    OperationMetrics(String operationName, boolean isUseCase) {
+        this.operationName = operationName;
+        this.isUseCase = isUseCase;
+    }
+}
@@ -5,7 +5,10 @@ import berlin.tu.csb.model.Item;
 import berlin.tu.csb.model.Order;
 import berlin.tu.csb.model.OrderLine;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class PersistenceController {
     DatabaseController databaseController;
@@ -52,15 +55,6 @@ public class PersistenceController {
         return false;
     }
 
-    private boolean insertOrder(Order order) {
-        if(databaseController.insertOrder(order)) {
-            stateController.addOrder(order);
-            return true;
-        }
-        else
-            return false;
-    }
-
     private boolean bulkInsertOrders(List<Order> orderList) {
         if(databaseController.bulkInsertOrders(orderList)) {
             for (Order order:orderList) {
@@ -83,7 +77,12 @@ public class PersistenceController {
     }
 
     public boolean insertOrderWithOrderLines(Order order, List<OrderLine> orderLineList) {
-        if(insertOrder(order) && insertOrderLines(orderLineList)) {
+        // one transaction for the order and its lines, the state is only updated when both were committed
+        if(databaseController.insertOrderWithOrderLines(order, orderLineList)) {
+            stateController.addOrder(order);
+            for (OrderLine orderLine: orderLineList) {
+                stateController.addOrderLine(orderLine);
+            }
             return true;
         }
         else
@@ -108,49 +107,58 @@ public class PersistenceController {
         return false;
     }
 
-    public boolean syncCustomerStateWithDB() {
-        List<Customer> customerList = databaseController.fetchAllCustomers();
-        if (customerList == null || customerList.size() == 0) {
-            return false;
-        }
-        for (Customer customer: databaseController.fetchAllCustomers()) {
-            stateController.addCustomer(customer);
+    // the streamed objects are added to the local state while they are copied and removed again if the COPY was not committed
+    public boolean copyCustomers(Stream<Customer> customerStream) {
+        int customerListSize = stateController.getCustomerListSize();
+        if(databaseController.copyCustomers(addingToState(customerStream.iterator(), stateController::addCustomer))) {
+            return true;
         }
-        return true;
+        stateController.removeCustomersAddedAfter(customerListSize);
+        return false;
     }
 
-
-    public boolean syncItemStateWithDB() {
-        List<Item> itemList = databaseController.fetchAllItems();
-        if(itemList == null || itemList.size() == 0) {
-            return false;
-        }
-        for (Item item:itemList) {
-            stateController.addItem(item);
+    public boolean copyItems(Stream<Item> itemStream) {
+        int itemListSize = stateController.getItemListSize();
+        if(databaseController.copyItems(addingToState(itemStream.iterator(), stateController::addItem))) {
+            return true;
         }
-        return true;
+        stateController.removeItemsAddedAfter(itemListSize);
+        return false;
     }
 
-    public boolean syncOrderStateWithDB() {
-        List<Order> orderList = databaseController.fetchAllOrders();
-        if(orderList == null || orderList.size() == 0) {
-            return false;
-        }
-        for (Order order: orderList) {
-            stateController.addOrder(order);
+    public boolean copyOrders(Stream<Order> orderStream) {
+        int orderListSize = stateController.getOrderSize();
+        if(databaseController.copyOrders(addingToState(orderStream.iterator(), stateController::addOrder))) {
+            return true;
         }
-        return true;
+        stateController.removeOrdersAddedAfter(orderListSize);
+        return false;
     }
 
-    public boolean syncOrderLineStateWithDB() {
-        List<OrderLine> orderLineList = databaseController.fetchAllOrderLines();
-        if(orderLineList == null || orderLineList.size() == 0) {
-            return false;
-        }
-        for (OrderLine orderLine: orderLineList) {
-            stateController.addOrderLine(orderLine);
+    public boolean copyOrderLines(Stream<OrderLine> orderLineStream) {
+        int orderLineListSize = stateController.getOrderLineSize();
+        if(databaseController.copyOrderLines(addingToState(orderLineStream.iterator(), stateController::addOrderLine))) {
+            return true;
         }
-        return true;
+        stateController.removeOrderLinesAddedAfter(orderLineListSize);
+        return false;
+    }
+
+    // hands every object to the state at the moment the COPY takes it from the iterator, so the rows are never buffered
+    private static <T> Iterator<T> addingToState(Iterator<T> iterator, Consumer<T> addToState) {
+        return new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public T next() {
+                T object = iterator.next();
+                addToState.accept(object);
+                return object;
+            }
+        };
     }
 
     public void syncPersistenceController(PersistenceController persistenceController) {
@@ -0,0 +1,81 @@
+package berlin.tu.csb.controller;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gives every SQL statement text (with ? placeholders, never with literal values) a template id.
+ * The id is a hash of the text, so it is the same in every run and on every vm, and traces of different runs can be
+ * compared per template. The trace only stores the id, the text is written once per segment.
+ **/
+public class QueryTemplateRegistry {
+    public static final int NO_TEMPLATE = 0;
+
+    static Logger logger = LogManager.getLogger(QueryTemplateRegistry.class);
+
+    private static final Map<String, Integer> templateIdMap = new ConcurrentHashMap<>();
+    private static final Map<Integer, String> templateMap = new ConcurrentHashMap<>();
+    private static final Map<Integer, String> queryTypeMap = new ConcurrentHashMap<>();
+
+    public static int register(String sqlTemplate) {
+        Integer templateId = templateIdMap.get(sqlTemplate);
+        if (templateId != null) {
+            return templateId;
+        }
+        int newTemplateId = getTemplateId(sqlTemplate);
+        String registeredTemplate = templateMap.putIfAbsent(newTemplateId, sqlTemplate);
+        if (registeredTemplate != null && !registeredTemplate.equals(sqlTemplate)) {
+            logger.error(String.format("The templates '%s' and '%s' have the same id %d, they can not be told apart in the trace", registeredTemplate, sqlTemplate, newTemplateId));
+        }
+        templateIdMap.put(sqlTemplate, newTemplateId);
+        return newTemplateId;
+    }
+
+    public static String getTemplate(int templateId) {
+        return templateMap.get(templateId);
+    }
+
+    // SELECT, JOIN, INSERT, UPDATE, COPY or OTHER, the categories the analysis reports latencies for
+    public static String getQueryType(int templateId, String sqlTemplate) {
+        if (templateId == NO_TEMPLATE) {
+            return getQueryType(sqlTemplate);
+        }
+        return queryTypeMap.computeIfAbsent(templateId, key -> getQueryType(sqlTemplate));
+    }
+
+    static String getQueryType(String sqlString) {
+        if (sqlString == null) {
+            return "OTHER";
+        }
+        if (sqlString.contains("JOIN")) {
+            return "JOIN";
+        }
+        if (sqlString.contains("SELECT")) {
+            return "SELECT";
+        }
+        if (sqlString.contains("INSERT")) {
+            return "INSERT";
+        }
+        if (sqlString.contains("UPDATE")) {
+            return "UPDATE";
+        }
+        if (sqlString.contains("COPY")) {
+            return "COPY";
+        }
+        return "OTHER";
+    }
+
+    // 32 bit FNV-1a of the UTF-8 bytes, 0 is reserved for records without a template
+    static int getTemplateId(String sqlTemplate) {
+        int hash = 0x811c9dc5;
+        for (byte b : sqlTemplate.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x01000193;
+        }
+        return hash == NO_TEMPLATE ? 1 : hash;
+    }
+}
@@ -0,0 +1,50 @@
+package berlin.tu.csb.controller;
+
+import berlin.tu.csb.model.DatabaseTableModel;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Maps the rows of a ResultSet to model objects. The objects are created with a constructor reference
+ * and the column indexes are resolved once per ResultSet instead of looking up every column by name in every row.
+ **/
+public class RowMapper<T extends DatabaseTableModel> {
+    private final Supplier<T> constructor;
+    private final String[] columnNames;
+
+    public RowMapper(Supplier<T> constructor) {
+        this.constructor = constructor;
+        this.columnNames = constructor.get().getColumnNames();
+    }
+
+    public T newInstance() {
+        return constructor.get();
+    }
+
+    public int[] resolveColumnIndexes(ResultSet resultSet) throws SQLException {
+        int[] columnIndexes = new int[columnNames.length];
+        for (int i = 0; i < columnNames.length; i++) {
+            columnIndexes[i] = resultSet.findColumn(columnNames[i]);
+        }
+        return columnIndexes;
+    }
+
+    public T mapRow(ResultSet resultSet, int[] columnIndexes) throws SQLException {
+        T databaseTableModel = constructor.get();
+        databaseTableModel.initWithResultSet(resultSet, columnIndexes);
+        return databaseTableModel;
+    }
+
+    public List<T> mapAll(ResultSet resultSet) throws SQLException {
+        List<T> databaseTableModelList = new ArrayList<>();
+        int[] columnIndexes = resolveColumnIndexes(resultSet);
+        while (resultSet.next()) {
+            databaseTableModelList.add(mapRow(resultSet, columnIndexes));
+        }
+        return databaseTableModelList;
+    }
+}
@@ -0,0 +1,36 @@
+package berlin.tu.csb.controller;
+
+import berlin.tu.csb.model.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+public class RowMapperRegistry {
+    private static final Map<Class<? extends DatabaseTableModel>, RowMapper<? extends DatabaseTableModel>> rowMapperMap = new HashMap<>();
+
+    static {
+        register(Customer.class, Customer::new);
+        register(Item.class, Item::new);
+        register(Order.class, Order::new);
+        register(OrderLine.class, OrderLine::new);
+    }
+
+    private static <T extends DatabaseTableModel> void register(Class<T> modelClass, Supplier<T> constructor) {
+        rowMapperMap.put(modelClass, new RowMapper<>(constructor));
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T extends DatabaseTableModel> RowMapper<T> getRowMapper(Class<T> modelClass) {
+        RowMapper<T> rowMapper = (RowMapper<T>) rowMapperMap.get(modelClass);
+        if (rowMapper == null) {
+            throw new IllegalArgumentException("No row mapper registered for " + modelClass);
+        }
+        return rowMapper;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static RowMapper<? extends DatabaseTableModel> getRowMapper(DatabaseTableModel databaseTableModel) {
+        return getRowMapper((Class<DatabaseTableModel>) databaseTableModel.getClass());
+    }
+}
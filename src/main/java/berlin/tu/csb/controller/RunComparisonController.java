@@ -0,0 +1,251 @@
+package berlin.tu.csb.controller;
+
+import berlin.tu.csb.model.LatencyTimeSeries;
+import berlin.tu.csb.model.RunSummary;
+import berlin.tu.csb.model.SteadyStateWindow;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares several runs (directories below workload/) against the first one, the baseline. Every run is reduced to the
+ * throughput and the latency percentiles of its steady state. The confidence intervals come from a block bootstrap:
+ * the steady state is cut into blocks of at least 10 seconds with one LatencyHistogram each, and the blocks are drawn
+ * with replacement, so the autocorrelation of neighbouring queries does not shrink the intervals. A difference to the
+ * baseline is a regression if the bootstrap interval of the difference lies entirely on the bad side of 0.
+ * Speedup and efficiency are relative to the baseline, efficiency scales by the number of SUT cpus (suts * cpus).
+ **/
+public class RunComparisonController {
+    private static final int BOOTSTRAP_RESAMPLES = 1000;
+    // two sided, the 2.5th and 97.5th percentile of the replicates
+    private static final double CONFIDENCE_LEVEL = 95;
+    private static final long MIN_BLOCK_MILLIS = 10_000;
+    private static final int MAX_BLOCKS = 200;
+    // below this the block bootstrap can hardly resolve a tail percentile, the intervals are reported with a warning
+    private static final int MIN_BLOCKS_FOR_PERCENTILE_INTERVALS = 20;
+    private static final long BOOTSTRAP_SEED = 42;
+    private static final long TIME_SERIES_RESOLUTION_IN_MILLISECONDS = 1000;
+    private static final int STEADY_STATE_BATCH_SIZE = 5;
+    // every run that is analyzed at the same time is in the heap completely
+    private static final int MAX_PARALLEL_RUNS = 4;
+    private static final String[] METRIC_NAMES = {"throughput", "p50", "p95", "p99"};
+    private static final String CSV_HEADER = "run,suts,cpus,threads,queries,steadyStateSeconds,throughputPerSecond,throughputLow,throughputHigh,p50Millis,p50Low,p50High,p95Millis,p95Low,p95High,p99Millis,p99Low,p99High,speedup,efficiency,regressions";
+
+    public static List<RunSummary> compare(List<String> runNameList) {
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.min(runNameList.size(), MAX_PARALLEL_RUNS));
+        List<RunSummary> runSummaryList = new ArrayList<>();
+        try {
+            List<Future<RunSummary>> futureList = new ArrayList<>();
+            for (String runName : runNameList) {
+                futureList.add(executorService.submit(() -> summarize(runName)));
+            }
+            for (Future<RunSummary> future : futureList) {
+                runSummaryList.add(future.get());
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            e.printStackTrace();
+            return runSummaryList;
+        } finally {
+            executorService.shutdown();
+        }
+
+        RunSummary baseline = runSummaryList.get(0);
+        runSummaryList.forEach(runSummary -> compareToBaseline(runSummary, baseline));
+
+        List<String> outputStrings = new ArrayList<>();
+        outputStrings.add(String.format("Comparison of %d runs against the baseline %s, %.0f%% bootstrap confidence intervals of the steady state%n", runSummaryList.size(), baseline.runName, CONFIDENCE_LEVEL));
+        outputStrings.add(String.format("%-24s %10s %8s %30s %30s %30s %30s %8s %10s  %s", "run", "queries", "seconds", "throughput [q/s]", "p50 [ms]", "p95 [ms]", "p99 [ms]", "speedup", "efficiency", "regressions"));
+        for (RunSummary runSummary : runSummaryList) {
+            outputStrings.add(String.format(Locale.ROOT, "%-24s %10d %8.0f %30s %30s %30s %30s %8.2f %10s  %s", runSummary.runName, runSummary.queryCount, runSummary.steadyStateSeconds,
+                    getIntervalString(runSummary.throughputPerSecond, runSummary.throughputLow, runSummary.throughputHigh),
+                    getIntervalString(runSummary.p50Millis, runSummary.p50Low, runSummary.p50High),
+                    getIntervalString(runSummary.p95Millis, runSummary.p95Low, runSummary.p95High),
+                    getIntervalString(runSummary.p99Millis, runSummary.p99Low, runSummary.p99High),
+                    runSummary.speedup, Double.isNaN(runSummary.efficiency) ? "-" : String.format(Locale.ROOT, "%.2f", runSummary.efficiency), runSummary.regressions));
+        }
+        outputStrings.forEach(System.out::println);
+
+        Path workloadPath = Paths.get(System.getProperty("user.dir"), "workload");
+        try {
+            Files.write(workloadPath.resolve("comparison.txt"), outputStrings, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        writeCsv(workloadPath.resolve("comparison.csv"), runSummaryList);
+        return runSummaryList;
+    }
+
+    static RunSummary summarize(String runName) {
+        RunSummary runSummary = new RunSummary();
+        runSummary.runName = runName;
+        runSummary.suts = getNumberInName(runName, "(\\d+)suts");
+        runSummary.cpus = getNumberInName(runName, "(\\d+)cpus");
+        runSummary.threads = getNumberInName(runName, "(\\d+)t(?:_|$)");
+
+        WorkloadIngestionController.IngestedWorkload ingestedWorkload = AnalyzeController.readIngestedWorkload(runName);
+        LatencyTimeSeries latencyTimeSeries = TimeSeriesController.aggregate(ingestedWorkload.columnsByThread.values(), TIME_SERIES_RESOLUTION_IN_MILLISECONDS);
+        SteadyStateWindow steadyStateWindow = SteadyStateController.detect(latencyTimeSeries, STEADY_STATE_BATCH_SIZE);
+        long steadyStateMillis = steadyStateWindow.endMillis - steadyStateWindow.startMillis;
+        runSummary.steadyStateSeconds = steadyStateMillis / 1000d;
+
+        long blockMillis = Math.max(MIN_BLOCK_MILLIS, (steadyStateMillis + MAX_BLOCKS - 1) / MAX_BLOCKS);
+        LatencyHistogram[] blockHistograms = new LatencyHistogram[(int) Math.max(1, (steadyStateMillis + blockMillis - 1) / blockMillis)];
+        Arrays.setAll(blockHistograms, block -> new LatencyHistogram());
+        LatencyHistogram allHistogram = new LatencyHistogram();
+        ingestedWorkload.columnsByThread.values().forEach(workloadColumnsList -> workloadColumnsList.forEach(workloadColumns -> {
+            for (int i = 0; i < workloadColumns.size; i++) {
+                long endNanos = workloadColumns.startNanos[i] + workloadColumns.durationNanos[i];
+                if (steadyStateWindow.contains(endNanos)) {
+                    blockHistograms[(int) ((endNanos / 1_000_000L - steadyStateWindow.startMillis) / blockMillis)].record(workloadColumns.durationNanos[i]);
+                    allHistogram.record(workloadColumns.durationNanos[i]);
+                }
+            }
+        }));
+        runSummary.queryCount = allHistogram.getCount();
+        if (runSummary.queryCount == 0) {
+            System.out.println("The run " + runName + " has no queries in its steady state");
+            runSummary.bootstrapReplicates = new double[METRIC_NAMES.length][0];
+            return runSummary;
+        }
+        double[] metrics = getMetrics(allHistogram, runSummary.steadyStateSeconds);
+
+        double[][] bootstrapReplicates = new double[METRIC_NAMES.length][BOOTSTRAP_RESAMPLES];
+        if (blockHistograms.length < MIN_BLOCKS_FOR_PERCENTILE_INTERVALS) {
+            System.out.printf("Warning: the steady state of %s has only %d bootstrap blocks, its percentile intervals are not meaningful\n", runName, blockHistograms.length);
+        }
+        // a seed per run, so runs with the same number of blocks do not draw the same blocks and stay independent of each other
+        Random random = new Random(BOOTSTRAP_SEED * 31 + runName.hashCode());
+        LatencyHistogram resampledHistogram = new LatencyHistogram();
+        for (int resample = 0; resample < BOOTSTRAP_RESAMPLES; resample++) {
+            resampledHistogram.reset();
+            for (int block = 0; block < blockHistograms.length; block++) {
+                resampledHistogram.merge(blockHistograms[random.nextInt(blockHistograms.length)]);
+            }
+            double[] resampledMetrics = getMetrics(resampledHistogram, runSummary.steadyStateSeconds);
+            for (int metric = 0; metric < METRIC_NAMES.length; metric++) {
+                bootstrapReplicates[metric][resample] = resampledMetrics[metric];
+            }
+        }
+        runSummary.bootstrapReplicates = bootstrapReplicates;
+
+        double[][] intervals = new double[METRIC_NAMES.length][];
+        for (int metric = 0; metric < METRIC_NAMES.length; metric++) {
+            intervals[metric] = getConfidenceInterval(bootstrapReplicates[metric]);
+        }
+        runSummary.throughputPerSecond = metrics[0];
+        runSummary.throughputLow = intervals[0][0];
+        runSummary.throughputHigh = intervals[0][1];
+        runSummary.p50Millis = metrics[1];
+        runSummary.p50Low = intervals[1][0];
+        runSummary.p50High = intervals[1][1];
+        runSummary.p95Millis = metrics[2];
+        runSummary.p95Low = intervals[2][0];
+        runSummary.p95High = intervals[2][1];
+        runSummary.p99Millis = metrics[3];
+        runSummary.p99Low = intervals[3][0];
+        runSummary.p99High = intervals[3][1];
+        System.out.printf("Summarized %s: %d queries in %.0f seconds of steady state, %d bootstrap blocks of %d ms\n", runName, runSummary.queryCount, runSummary.steadyStateSeconds, blockHistograms.length, blockMillis);
+        return runSummary;
+    }
+
+    // throughput per second, p50, p95 and p99 in milliseconds, in the order of METRIC_NAMES
+    private static double[] getMetrics(LatencyHistogram latencyHistogram, double seconds) {
+        return new double[]{
+                seconds > 0 ? latencyHistogram.getCount() / seconds : 0,
+                latencyHistogram.getValueAtPercentileInMilliseconds(50),
+                latencyHistogram.getValueAtPercentileInMilliseconds(95),
+                latencyHistogram.getValueAtPercentileInMilliseconds(99)};
+    }
+
+    private static void compareToBaseline(RunSummary runSummary, RunSummary baseline) {
+        runSummary.speedup = baseline.throughputPerSecond > 0 ? runSummary.throughputPerSecond / baseline.throughputPerSecond : Double.NaN;
+        int resources = runSummary.suts * Math.max(1, runSummary.cpus);
+        int baselineResources = baseline.suts * Math.max(1, baseline.cpus);
+        runSummary.efficiency = resources > 0 && baselineResources > 0 ? runSummary.speedup / ((double) resources / baselineResources) : Double.NaN;
+
+        List<String> regressionList = new ArrayList<>();
+        if (runSummary != baseline && runSummary.queryCount > 0 && baseline.queryCount > 0) {
+            for (int metric = 0; metric < METRIC_NAMES.length; metric++) {
+                // the resamples of both runs are independent, their differences estimate the distribution of the difference
+                double[] differences = new double[BOOTSTRAP_RESAMPLES];
+                for (int resample = 0; resample < BOOTSTRAP_RESAMPLES; resample++) {
+                    differences[resample] = runSummary.bootstrapReplicates[metric][resample] - baseline.bootstrapReplicates[metric][resample];
+                }
+                double[] interval = getConfidenceInterval(differences);
+                // less throughput or more latency
+                boolean isRegression = metric == 0 ? interval[1] < 0 : interval[0] > 0;
+                if (isRegression) {
+                    double baselineValue = getMetricValue(baseline, metric);
+                    double relativeChange = baselineValue != 0 ? (getMetricValue(runSummary, metric) - baselineValue) / baselineValue * 100 : 0;
+                    regressionList.add(String.format(Locale.ROOT, "%s %+.1f%%", METRIC_NAMES[metric], relativeChange));
+                }
+            }
+        }
+        runSummary.regressions = String.join(" ", regressionList);
+    }
+
+    private static double getMetricValue(RunSummary runSummary, int metric) {
+        switch (metric) {
+            case 0:
+                return runSummary.throughputPerSecond;
+            case 1:
+                return runSummary.p50Millis;
+            case 2:
+                return runSummary.p95Millis;
+            default:
+                return runSummary.p99Millis;
+        }
+    }
+
+    private static double[] getConfidenceInterval(double[] replicates) {
+        double[] sortedReplicates = replicates.clone();
+        Arrays.sort(sortedReplicates);
+        double tail = (100 - CONFIDENCE_LEVEL) / 2 / 100;
+        int low = (int) Math.floor(tail * (sortedReplicates.length - 1));
+        int high = (int) Math.ceil((1 - tail) * (sortedReplicates.length - 1));
+        return new double[]{sortedReplicates[low], sortedReplicates[high]};
+    }
+
+    private static String getIntervalString(double value, double low, double high) {
+        return String.format(Locale.ROOT, "%.2f [%.2f, %.2f]", value, low, high);
+    }
+
+    private static int getNumberInName(String runName, String regex) {
+        Matcher matcher = Pattern.compile(regex).matcher(runName);
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : 0;
+    }
+
+    private static void writeCsv(Path filePath, List<RunSummary> runSummaryList) {
+        try (BufferedWriter writer = Files.newBufferedWriter(filePath, StandardCharsets.UTF_8)) {
+            writer.write(CSV_HEADER);
+            writer.newLine();
+            for (RunSummary runSummary : runSummaryList) {
+                writer.write(String.format(Locale.ROOT, "%s,%d,%d,%d,%d,%.0f,%.2f,%.2f,%.2f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%s",
+                        runSummary.runName, runSummary.suts, runSummary.cpus, runSummary.threads, runSummary.queryCount, runSummary.steadyStateSeconds,
+                        runSummary.throughputPerSecond, runSummary.throughputLow, runSummary.throughputHigh,
+                        runSummary.p50Millis, runSummary.p50Low, runSummary.p50High,
+                        runSummary.p95Millis, runSummary.p95Low, runSummary.p95High,
+                        runSummary.p99Millis, runSummary.p99Low, runSummary.p99High,
+                        runSummary.speedup, runSummary.efficiency, runSummary.regressions));
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -11,13 +11,13 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
 
 
 /**
  * Main class for the basic JDBC example.
  **/
 public class RunPhaseGenerator implements Runnable {
-
     long startTime;
     long runTimeInSeconds;
     long endTime;
@@ -28,6 +28,8 @@ public class RunPhaseGenerator implements Runnable {
     BenchmarkConfig benchmarkConfig;
 
     ArrayList<Item> topSellerItems;
+    // one timer per configured use case, every pick of a use case runs through its timer
+    List<UseCaseTimer> useCaseTimerList = new ArrayList<>();
 
     public RunPhaseGenerator(PersistenceController persistenceController, SeededRandomHelper seededRandomHelper, long startTime, long runTimeInSeconds, long endTime, BenchmarkConfig benchmarkConfig) {
         this.persistenceController = persistenceController;
@@ -75,7 +77,9 @@ public class RunPhaseGenerator implements Runnable {
                 Class classNameOfInnerClass = Class.forName(key);
                 Constructor constructorForNewInnerClass = classNameOfInnerClass.getDeclaredConstructor(RunPhaseGenerator.class);
                 Object newObjectOfInnerClass = constructorForNewInnerClass.newInstance(this);
-                addToProbabilityList(value, (Runnable) newObjectOfInnerClass, probabilityArray);
+                UseCaseTimer useCaseTimer = new UseCaseTimer(classNameOfInnerClass.getSimpleName(), (Runnable) newObjectOfInnerClass, persistenceController.databaseController.dao.transactionExecutor);
+                useCaseTimerList.add(useCaseTimer);
+                addToProbabilityList(value, useCaseTimer, probabilityArray);
             } catch (Exception e) {
                 e.printStackTrace();
                 logger.error("Error while creating object from class " + key + " for probability list from config.");
@@ -87,14 +91,19 @@ public class RunPhaseGenerator implements Runnable {
         }
 
 
-        while (System.currentTimeMillis() < endTime) {
+        if ("open".equals(benchmarkConfig.loadGenerationMode)) {
+            runOpenLoop(probabilityArray);
+        }
+        else {
+            while (System.currentTimeMillis() < endTime) {
 
-            int dice = seededRandomHelper.getIntBetween(0, 99);
+                int dice = seededRandomHelper.getIntBetween(0, 99);
 
-            probabilityArray.get(dice).run();
+                probabilityArray.get(dice).run();
 
 
 
+            }
         }
         logger.trace("thread finished");
         ThreadContext.clearMap();
@@ -223,6 +232,62 @@ public class RunPhaseGenerator implements Runnable {
 
 
 
+    // Open loop: the schedule of intended start times is fixed by the arrival process and does not move when the SUT slows down.
+    // The thread still issues its operations one after another, so while the SUT is slow the operations start late and the
+    // offered load drops. This is schedule lag tracking: the thread catches up by issuing the late operations immediately,
+    // and every query records its intended start, so the analysis adds the lag to its latency (see LatencyCorrectionController).
+    private void runOpenLoop(ArrayList<Runnable> probabilityArray) {
+        double arrivalRatePerThread = benchmarkConfig.targetArrivalRatePerSecond / benchmarkConfig.threadCountRun;
+        if (arrivalRatePerThread <= 0) {
+            logger.error("Open load generation mode needs a targetArrivalRatePerSecond > 0");
+            return;
+        }
+        double meanInterArrivalNanos = 1_000_000_000d / arrivalRatePerThread;
+        boolean isPoisson = "poisson".equals(benchmarkConfig.arrivalDistribution);
+
+        // separate random generator for the arrival process, derived from the seed of the thread without drawing from its
+        // generator, so the sequence of picked use cases stays the same as in the closed mode
+        SeededRandomHelper arrivalRandomHelper = new SeededRandomHelper(deriveArrivalSeed(seededRandomHelper.seed));
+        long baseMillis = System.currentTimeMillis();
+        long baseNanos = System.nanoTime();
+        long endNanos = baseNanos + (endTime - baseMillis) * 1_000_000L;
+        double intendedStartNanos = baseNanos;
+        long maxScheduleLagNanos = 0;
+
+        while (intendedStartNanos < endNanos) {
+            long waitNanos = (long) intendedStartNanos - System.nanoTime();
+            if (waitNanos > 0) {
+                LockSupport.parkNanos(waitNanos);
+                continue;
+            }
+            maxScheduleLagNanos = Math.max(maxScheduleLagNanos, -waitNanos);
+
+            persistenceController.databaseController.workloadQueryController.setIntendedStartNanos((long) intendedStartNanos);
+
+            int dice = seededRandomHelper.getIntBetween(0, 99);
+            probabilityArray.get(dice).run();
+
+            if (isPoisson) {
+                // exponentially distributed inter-arrival times result in a poisson arrival process
+                intendedStartNanos += -Math.log(1 - arrivalRandomHelper.seededRandom.nextDouble()) * meanInterArrivalNanos;
+            }
+            else {
+                intendedStartNanos += meanInterArrivalNanos;
+            }
+        }
+        persistenceController.databaseController.workloadQueryController.setIntendedStartNanos(0);
+        logger.info(String.format("Open loop finished with a maximum schedule lag of %d ms", maxScheduleLagNanos / 1_000_000L));
+    }
+
+    // one splitmix64 step, java.util.Random only xors its seed with a constant, so a seed that is close to the workload seed
+    // would start it in a correlated state
+    private static long deriveArrivalSeed(long seed) {
+        long z = seed + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
     private void addToProbabilityList(int percentage, Runnable function, ArrayList<Runnable> probabilityList) {
         for (int i = 0; i < percentage; i++) {
             probabilityList.add(function);
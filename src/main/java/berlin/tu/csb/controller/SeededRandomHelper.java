@@ -7,12 +7,15 @@ import java.util.UUID;
 
 public class SeededRandomHelper {
     public Random seededRandom;
+    // the seed seededRandom was created with, to derive further generators without drawing from it
+    public long seed;
     public static final String[] alphabet =  {"a","b", "c", "d", "e", "f", "g", "h", "i", "j", "k", "l", "m", "n", "o", "p", "q", "r", "s", "t", "u", "v", "w", "x", "y", "z", "A","B", "C", "D", "E", "F", "G", "H", "I", "J", "K", "L", "M", "N", "O", "P", "Q", "R", "S", "T", "U", "V", "W", "X", "Y", "Z"};
 
 
     public SeededRandomHelper() {}
 
     public SeededRandomHelper(long seed) {
+        this.seed = seed;
         seededRandom = new Random(seed);
     }
 
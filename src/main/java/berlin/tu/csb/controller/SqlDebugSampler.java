@@ -0,0 +1,28 @@
+package berlin.tu.csb.controller;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Logs the rendered SQL of every n-th statement of a worker thread, as a replacement for keeping all of them.
+ * Disabled unless BenchmarkConfig.sqlDebugSampleEveryNthStatement is set, the statement is only rendered when it is sampled.
+ **/
+class SqlDebugSampler {
+    static Logger logger = LogManager.getLogger(SqlDebugSampler.class);
+
+    private final long sampleEveryNthStatement;
+    private long statementCounter = 0;
+
+    SqlDebugSampler(long sampleEveryNthStatement) {
+        this.sampleEveryNthStatement = sampleEveryNthStatement;
+    }
+
+    void sample(Object statement) {
+        if (sampleEveryNthStatement <= 0) {
+            return;
+        }
+        if (statementCounter++ % sampleEveryNthStatement == 0) {
+            logger.info("{}", statement);
+        }
+    }
+}
@@ -60,6 +60,29 @@ public class StateController {
         orderLineIds.add(orderLine.ol_id);
     }
 
+    // removes everything that was added after the list had the given size, used when a COPY that streamed into the state failed
+    public void removeCustomersAddedAfter(int customerListSize) {
+        removeAddedAfter(customerMap, customerIds, customerListSize);
+    }
+
+    public void removeItemsAddedAfter(int itemListSize) {
+        removeAddedAfter(itemMap, itemIds, itemListSize);
+    }
+
+    public void removeOrdersAddedAfter(int orderListSize) {
+        removeAddedAfter(orderMap, orderIds, orderListSize);
+    }
+
+    public void removeOrderLinesAddedAfter(int orderLineListSize) {
+        removeAddedAfter(orderLineMap, orderLineIds, orderLineListSize);
+    }
+
+    private static <T> void removeAddedAfter(Map<String, T> map, ArrayList<String> ids, int size) {
+        List<String> addedIds = ids.subList(size, ids.size());
+        addedIds.forEach(map::remove);
+        addedIds.clear();
+    }
+
     public Customer getRandomCustomer() {
         String randomCustomerId = customerIds.get(seededRandomHelper.getIntBetween(0, customerIds.size()-1));
         return customerMap.get(randomCustomerId);
@@ -87,11 +110,22 @@ public class StateController {
         return itemList;
     }
 
+    public Order getOrder(int index) {
+        return orderMap.get(orderIds.get(index));
+    }
+
     public Order getRandomOrder() {
         String randomOrderId = orderIds.get(seededRandomHelper.getIntBetween(0, orderIds.size()-1));
         return orderMap.get(randomOrderId);
     }
 
+    public void sortIds() {
+        Collections.sort(customerIds);
+        Collections.sort(itemIds);
+        Collections.sort(orderIds);
+        Collections.sort(orderLineIds);
+    }
+
     public boolean hasCustomer() {
         return !customerIds.isEmpty();
     }
@@ -0,0 +1,160 @@
+package berlin.tu.csb.controller;
+
+import berlin.tu.csb.model.*;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Loads the content of all tables into a StateController before the run phase.
+ * Every table is split into ranges of its UUID primary key. The ranges are fetched in parallel over pooled
+ * connections of all servers with a cursor (fetch size), and the rows are streamed into the state in chunks,
+ * so no table is materialized as one list.
+ **/
+public class StatePreloadController {
+    private static final int DEFAULT_FETCH_SIZE = 1000;
+    private static final int DEFAULT_RANGES_PER_TABLE = 16;
+    private static final int DEFAULT_PARALLELISM = 8;
+
+    static Logger logger = LogManager.getLogger(StatePreloadController.class);
+
+    private final List<DataSource> dataSourceList = new ArrayList<>();
+    private final int fetchSize;
+    private final int rangesPerTable;
+    private final int parallelism;
+
+    public StatePreloadController(String dbName, String dbUserName, int dbPort, String[] serverAddresses, BenchmarkConfig benchmarkConfig) {
+        for (String serverAddress : serverAddresses) {
+            dataSourceList.add(ConnectionPoolController.getDataSource(dbName, dbUserName, dbPort, serverAddress, benchmarkConfig));
+        }
+        this.fetchSize = benchmarkConfig.preloadFetchSize > 0 ? benchmarkConfig.preloadFetchSize : DEFAULT_FETCH_SIZE;
+        this.rangesPerTable = benchmarkConfig.preloadRangesPerTable > 0 ? benchmarkConfig.preloadRangesPerTable : DEFAULT_RANGES_PER_TABLE;
+        this.parallelism = benchmarkConfig.preloadParallelism > 0 ? benchmarkConfig.preloadParallelism : DEFAULT_PARALLELISM;
+    }
+
+    public boolean preload(StateController stateController) {
+        long startNanos = System.nanoTime();
+        ExecutorService executorService = Executors.newFixedThreadPool(parallelism);
+        List<Future<?>> futureList = new ArrayList<>();
+        AtomicLong customerCount = new AtomicLong();
+        AtomicLong itemCount = new AtomicLong();
+        AtomicLong orderCount = new AtomicLong();
+        AtomicLong orderLineCount = new AtomicLong();
+
+        submitTable(executorService, futureList, Customer.class, chunk -> {
+            synchronized (stateController) {
+                chunk.forEach(stateController::addCustomer);
+            }
+            customerCount.addAndGet(chunk.size());
+        });
+        submitTable(executorService, futureList, Item.class, chunk -> {
+            synchronized (stateController) {
+                chunk.forEach(stateController::addItem);
+            }
+            itemCount.addAndGet(chunk.size());
+        });
+        submitTable(executorService, futureList, Order.class, chunk -> {
+            synchronized (stateController) {
+                chunk.forEach(stateController::addOrder);
+            }
+            orderCount.addAndGet(chunk.size());
+        });
+        submitTable(executorService, futureList, OrderLine.class, chunk -> {
+            synchronized (stateController) {
+                chunk.forEach(stateController::addOrderLine);
+            }
+            orderLineCount.addAndGet(chunk.size());
+        });
+
+        boolean success = true;
+        try {
+            for (Future<?> future : futureList) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            success = false;
+        } catch (ExecutionException e) {
+            logger.error("Preloading the state failed: " + e.getCause().getMessage());
+            success = false;
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        // the ranges finish in any order, sorting keeps the seeded random picks of the run phase reproducible
+        stateController.sortIds();
+
+        logger.info(String.format("Preloaded %d Customers, %d Items, %d Orders and %d OrderLines in %.1f s", customerCount.get(), itemCount.get(), orderCount.get(), orderLineCount.get(), (System.nanoTime() - startNanos) / 1_000_000_000d));
+        return success;
+    }
+
+    private <T extends DatabaseTableModel> void submitTable(ExecutorService executorService, List<Future<?>> futureList, Class<T> modelClass, Consumer<List<T>> chunkConsumer) {
+        RowMapper<T> rowMapper = RowMapperRegistry.getRowMapper(modelClass);
+        T prototype = rowMapper.newInstance();
+        String primaryKeyName = prototype.getPrimaryKeyNameAndValue().getKey();
+        String sqlRange = String.format("SELECT * FROM %s WHERE %s >= ? AND %s < ?", prototype.getTableName(), primaryKeyName, primaryKeyName);
+        String sqlLastRange = String.format("SELECT * FROM %s WHERE %s >= ?", prototype.getTableName(), primaryKeyName);
+
+        for (int range = 0; range < rangesPerTable; range++) {
+            UUID lowerBound = getRangeBound(range);
+            UUID upperBound = range + 1 < rangesPerTable ? getRangeBound(range + 1) : null;
+            // spread the ranges over the servers, so the preload does not hit only one node
+            DataSource ds = dataSourceList.get(range % dataSourceList.size());
+            futureList.add(executorService.submit(() -> {
+                fetchRange(ds, upperBound == null ? sqlLastRange : sqlRange, lowerBound, upperBound, rowMapper, chunkConsumer);
+                return null;
+            }));
+        }
+    }
+
+    private <T extends DatabaseTableModel> void fetchRange(DataSource ds, String sqlStatement, UUID lowerBound, UUID upperBound, RowMapper<T> rowMapper, Consumer<List<T>> chunkConsumer) throws SQLException {
+        try (Connection connection = ds.getConnection()) {
+            // the driver only uses a cursor and fetches fetchSize rows per round trip inside a transaction
+            connection.setAutoCommit(false);
+            try (PreparedStatement pstmt = connection.prepareStatement(sqlStatement)) {
+                pstmt.setFetchSize(fetchSize);
+                pstmt.setObject(1, lowerBound);
+                if (upperBound != null) {
+                    pstmt.setObject(2, upperBound);
+                }
+
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    int[] columnIndexes = rowMapper.resolveColumnIndexes(rs);
+                    List<T> chunk = new ArrayList<>(fetchSize);
+                    while (rs.next()) {
+                        chunk.add(rowMapper.mapRow(rs, columnIndexes));
+                        if (chunk.size() >= fetchSize) {
+                            chunkConsumer.accept(chunk);
+                            chunk = new ArrayList<>(fetchSize);
+                        }
+                    }
+                    chunkConsumer.accept(chunk);
+                }
+            } finally {
+                // read only, nothing to commit
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    // splits the UUID space evenly by its first 32 bits, UUIDs are compared byte wise like their hex representation
+    private UUID getRangeBound(int range) {
+        long mostSignificantBits = ((1L << 32) * range / rangesPerTable) << 32;
+        return new UUID(mostSignificantBits, 0);
+    }
+}
@@ -0,0 +1,78 @@
+package berlin.tu.csb.controller;
+
+import berlin.tu.csb.model.LatencyTimeSeries;
+import berlin.tu.csb.model.SteadyStateWindow;
+
+/**
+ * Finds the steady state of a run in its time series with the marginal standard error rule (MSER): the series is
+ * averaged over batches of a few buckets and the warm-up is the number of leading batches whose removal minimizes the
+ * variance of the remaining batch means divided by their count. A long transient raises the variance, a long cut
+ * shrinks the count, so the rule cuts as long as the transient dominates. The cool-down is found the same way on the
+ * reversed series. Throughput and mean latency are both checked, the window is the part that is steady in both.
+ * At most half of the run is cut from each side.
+ **/
+public class SteadyStateController {
+
+    public static SteadyStateWindow detect(LatencyTimeSeries latencyTimeSeries, int batchSize) {
+        int batchCount = latencyTimeSeries.bucketCount / batchSize;
+        SteadyStateWindow steadyStateWindow = new SteadyStateWindow();
+        steadyStateWindow.firstBucket = 0;
+        steadyStateWindow.endBucket = latencyTimeSeries.bucketCount;
+        // too short to tell a transient from noise, the whole run is used
+        if (batchCount >= 4) {
+            double[] throughputBatches = new double[batchCount];
+            double[] latencyBatches = new double[batchCount];
+            for (int batch = 0; batch < batchCount; batch++) {
+                long count = 0;
+                double latencySum = 0;
+                for (int bucket = batch * batchSize; bucket < (batch + 1) * batchSize; bucket++) {
+                    count += latencyTimeSeries.counts[bucket];
+                    latencySum += latencyTimeSeries.meanMillis[bucket] * latencyTimeSeries.counts[bucket];
+                }
+                throughputBatches[batch] = (double) count / batchSize;
+                // a batch without queries keeps the latency of the one before
+                latencyBatches[batch] = count > 0 ? latencySum / count : batch > 0 ? latencyBatches[batch - 1] : 0;
+            }
+            int warmUpBatches = Math.max(getTruncationPoint(throughputBatches, false), getTruncationPoint(latencyBatches, false));
+            int coolDownBatches = Math.max(getTruncationPoint(throughputBatches, true), getTruncationPoint(latencyBatches, true));
+            steadyStateWindow.firstBucket = warmUpBatches * batchSize;
+            // the buckets after the last full batch belong to the cool-down
+            steadyStateWindow.endBucket = (batchCount - coolDownBatches) * batchSize;
+            if (steadyStateWindow.endBucket <= steadyStateWindow.firstBucket) {
+                steadyStateWindow.firstBucket = 0;
+                steadyStateWindow.endBucket = latencyTimeSeries.bucketCount;
+            }
+        }
+        steadyStateWindow.startMillis = latencyTimeSeries.getBucketStartMillis(steadyStateWindow.firstBucket);
+        steadyStateWindow.endMillis = latencyTimeSeries.getBucketStartMillis(steadyStateWindow.endBucket);
+        steadyStateWindow.warmUpSeconds = steadyStateWindow.firstBucket * latencyTimeSeries.bucketMillis / 1000d;
+        steadyStateWindow.coolDownSeconds = (latencyTimeSeries.bucketCount - steadyStateWindow.endBucket) * latencyTimeSeries.bucketMillis / 1000d;
+        return steadyStateWindow;
+    }
+
+    // number of batches to cut from the start (or from the end if isReversed), at most half of them
+    static int getTruncationPoint(double[] batchMeans, boolean isReversed) {
+        int n = batchMeans.length;
+        // sums over the batches that remain after the cut, grown from the far end of the series
+        double sum = 0;
+        double sumOfSquares = 0;
+        double[] mser = new double[n / 2 + 1];
+        for (int remaining = 1; remaining <= n; remaining++) {
+            double value = batchMeans[isReversed ? remaining - 1 : n - remaining];
+            sum += value;
+            sumOfSquares += value * value;
+            int cut = n - remaining;
+            if (cut <= n / 2) {
+                double variance = Math.max(0, sumOfSquares - sum * sum / remaining);
+                mser[cut] = variance / ((double) remaining * remaining);
+            }
+        }
+        int truncationPoint = 0;
+        for (int cut = 1; cut <= n / 2; cut++) {
+            if (mser[cut] < mser[truncationPoint]) {
+                truncationPoint = cut;
+            }
+        }
+        return truncationPoint;
+    }
+}
@@ -0,0 +1,126 @@
+package berlin.tu.csb.controller;
+
+import berlin.tu.csb.model.LatencyTimeSeries;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Bins the queries of a run into buckets of a fixed resolution (100 ms, 1 s, 10 s ...) by the time they ended.
+ * The durations are moved into one primitive array ordered by bucket (a counting sort over the columns), every bucket
+ * is then sorted on its own, so the count, mean and exact tail percentiles of a bucket need no object per query.
+ **/
+public class TimeSeriesController {
+    private static final String CSV_HEADER = "bucketStartMillis,count,queriesPerSecond,meanMillis,p50Millis,p95Millis,p99Millis,maxMillis";
+
+    public static LatencyTimeSeries aggregate(Collection<List<WorkloadColumns>> workloadColumnsLists, long bucketMillis) {
+        long bucketNanos = bucketMillis * 1_000_000L;
+        long minEndNanos = Long.MAX_VALUE;
+        long maxEndNanos = Long.MIN_VALUE;
+        long queryCount = 0;
+        for (List<WorkloadColumns> workloadColumnsList : workloadColumnsLists) {
+            for (WorkloadColumns workloadColumns : workloadColumnsList) {
+                for (int i = 0; i < workloadColumns.size; i++) {
+                    long endNanos = workloadColumns.startNanos[i] + workloadColumns.durationNanos[i];
+                    minEndNanos = Math.min(minEndNanos, endNanos);
+                    maxEndNanos = Math.max(maxEndNanos, endNanos);
+                }
+                queryCount += workloadColumns.size;
+            }
+        }
+
+        LatencyTimeSeries latencyTimeSeries = new LatencyTimeSeries();
+        latencyTimeSeries.bucketMillis = bucketMillis;
+        if (queryCount == 0) {
+            allocate(latencyTimeSeries, 0);
+            return latencyTimeSeries;
+        }
+        if (queryCount > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("A time series of " + queryCount + " queries does not fit into one array, use a subset of the threads");
+        }
+        long firstBucketStartNanos = Math.floorDiv(minEndNanos, bucketNanos) * bucketNanos;
+        latencyTimeSeries.firstBucketStartMillis = firstBucketStartNanos / 1_000_000L;
+        allocate(latencyTimeSeries, (int) ((maxEndNanos - firstBucketStartNanos) / bucketNanos) + 1);
+
+        // first pass counts the queries per bucket, the second one places their durations
+        for (List<WorkloadColumns> workloadColumnsList : workloadColumnsLists) {
+            for (WorkloadColumns workloadColumns : workloadColumnsList) {
+                for (int i = 0; i < workloadColumns.size; i++) {
+                    latencyTimeSeries.counts[getBucket(workloadColumns, i, firstBucketStartNanos, bucketNanos)]++;
+                }
+            }
+        }
+        int[] bucketOffsets = new int[latencyTimeSeries.bucketCount + 1];
+        for (int bucket = 0; bucket < latencyTimeSeries.bucketCount; bucket++) {
+            bucketOffsets[bucket + 1] = bucketOffsets[bucket] + (int) latencyTimeSeries.counts[bucket];
+        }
+        int[] nextPosition = Arrays.copyOf(bucketOffsets, latencyTimeSeries.bucketCount);
+        long[] durationNanos = new long[(int) queryCount];
+        for (List<WorkloadColumns> workloadColumnsList : workloadColumnsLists) {
+            for (WorkloadColumns workloadColumns : workloadColumnsList) {
+                for (int i = 0; i < workloadColumns.size; i++) {
+                    durationNanos[nextPosition[getBucket(workloadColumns, i, firstBucketStartNanos, bucketNanos)]++] = workloadColumns.durationNanos[i];
+                }
+            }
+        }
+
+        for (int bucket = 0; bucket < latencyTimeSeries.bucketCount; bucket++) {
+            int from = bucketOffsets[bucket];
+            int to = bucketOffsets[bucket + 1];
+            if (from == to) {
+                continue;
+            }
+            Arrays.sort(durationNanos, from, to);
+            long sumNanos = 0;
+            for (int i = from; i < to; i++) {
+                sumNanos += durationNanos[i];
+            }
+            latencyTimeSeries.meanMillis[bucket] = (double) sumNanos / (to - from) / 1_000_000d;
+            latencyTimeSeries.p50Millis[bucket] = getPercentile(durationNanos, from, to, 50) / 1_000_000d;
+            latencyTimeSeries.p95Millis[bucket] = getPercentile(durationNanos, from, to, 95) / 1_000_000d;
+            latencyTimeSeries.p99Millis[bucket] = getPercentile(durationNanos, from, to, 99) / 1_000_000d;
+            latencyTimeSeries.maxMillis[bucket] = durationNanos[to - 1] / 1_000_000d;
+        }
+        return latencyTimeSeries;
+    }
+
+    public static void writeCsv(Path filePath, LatencyTimeSeries latencyTimeSeries) {
+        try (BufferedWriter writer = Files.newBufferedWriter(filePath, StandardCharsets.UTF_8)) {
+            writer.write(CSV_HEADER);
+            writer.newLine();
+            for (int bucket = 0; bucket < latencyTimeSeries.bucketCount; bucket++) {
+                writer.write(String.format(Locale.ROOT, "%d,%d,%.2f,%.3f,%.3f,%.3f,%.3f,%.3f", latencyTimeSeries.getBucketStartMillis(bucket), latencyTimeSeries.counts[bucket], latencyTimeSeries.getQueriesPerSecond(bucket), latencyTimeSeries.meanMillis[bucket], latencyTimeSeries.p50Millis[bucket], latencyTimeSeries.p95Millis[bucket], latencyTimeSeries.p99Millis[bucket], latencyTimeSeries.maxMillis[bucket]));
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void allocate(LatencyTimeSeries latencyTimeSeries, int bucketCount) {
+        latencyTimeSeries.bucketCount = bucketCount;
+        latencyTimeSeries.counts = new long[bucketCount];
+        latencyTimeSeries.meanMillis = new double[bucketCount];
+        latencyTimeSeries.p50Millis = new double[bucketCount];
+        latencyTimeSeries.p95Millis = new double[bucketCount];
+        latencyTimeSeries.p99Millis = new double[bucketCount];
+        latencyTimeSeries.maxMillis = new double[bucketCount];
+    }
+
+    private static int getBucket(WorkloadColumns workloadColumns, int i, long firstBucketStartNanos, long bucketNanos) {
+        return (int) ((workloadColumns.startNanos[i] + workloadColumns.durationNanos[i] - firstBucketStartNanos) / bucketNanos);
+    }
+
+    // nearest rank on the sorted range
+    private static long getPercentile(long[] sortedNanos, int from, int to, double percentile) {
+        int rank = (int) Math.ceil(percentile / 100d * (to - from));
+        return sortedNanos[from + Math.max(0, rank - 1)];
+    }
+}
@@ -0,0 +1,262 @@
+package berlin.tu.csb.controller;
+
+import berlin.tu.csb.model.WorkloadQuery;
+import berlin.tu.csb.model.WorkloadTrace;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads a binary trace segment written by TraceSegmentWriter through a memory mapping.
+ * The reader is a cursor: next() moves to the next record and the getters read its columns straight from the mapped
+ * file, so scanning a segment creates no object per query. Dictionary strings are only decoded when they are asked for.
+ * A block that was cut off because the benchmark was killed ends the segment.
+ **/
+public class TraceSegmentReader {
+    private final ByteBuffer buffer;
+    private final WorkloadTrace header = new WorkloadTrace();
+    private final Map<Integer, String> templateMap = new HashMap<>();
+
+    private int[] dictionaryOffsets = new int[64];
+    private int[] dictionaryLengths = new int[64];
+    private String[] dictionaryStrings = new String[64];
+    private int dictionarySize = 0;
+
+    private int nextBlockOffset;
+    private boolean isTruncated = false;
+    private int blockRecordCount = 0;
+    private int recordIndex = 0;
+    private int sequenceIdOffset;
+    private int threadIdOffset;
+    private int templateIdOffset;
+    private int parameterHashOffset;
+    private int startNanosOffset;
+    private int durationNanosOffset;
+    private int intendedStartNanosOffset;
+    private int connectionWaitNanosOffset;
+    private int attemptOffset;
+    private int retryWaitNanosOffset;
+    private int serverIdOffset;
+
+    public TraceSegmentReader(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Trace segment " + path + " is larger than 2 GB");
+            }
+            // the mapping stays valid after the channel is closed
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.limit() < TraceSegmentWriter.HEADER_BYTES || buffer.getInt(0) != TraceSegmentWriter.MAGIC) {
+            throw new IOException(path + " is not a trace segment");
+        }
+        int version = buffer.getInt(4);
+        if (version != TraceSegmentWriter.VERSION) {
+            throw new IOException("Trace segment " + path + " has the unknown version " + version);
+        }
+        header.workloadContextId = buffer.getLong(8);
+        header.anchorEpochNanos = buffer.getLong(16);
+        header.anchorNanoTime = buffer.getLong(24);
+        this.nextBlockOffset = TraceSegmentWriter.HEADER_BYTES;
+    }
+
+    // true once next() ran into a block that was cut off
+    public boolean isTruncated() {
+        return isTruncated;
+    }
+
+    // the thread id and clock anchor of the segment, without queries
+    public WorkloadTrace getHeader() {
+        return header;
+    }
+
+    public boolean next() {
+        if (++recordIndex < blockRecordCount) {
+            return true;
+        }
+        return readNextBlock();
+    }
+
+    public long getSequenceId() {
+        return buffer.getLong(sequenceIdOffset + recordIndex * 8);
+    }
+
+    public long getWorkloadContextId() {
+        return buffer.getLong(threadIdOffset + recordIndex * 8);
+    }
+
+    public int getTemplateId() {
+        return buffer.getInt(templateIdOffset + recordIndex * 4);
+    }
+
+    public int getParameterHash() {
+        return buffer.getInt(parameterHashOffset + recordIndex * 4);
+    }
+
+    // the template text
+    public String getSqlString() {
+        return getTemplate(getTemplateId());
+    }
+
+    public String getTemplate(int templateId) {
+        return templateMap.get(templateId);
+    }
+
+    // nanoseconds since the epoch
+    public long getStartNanos() {
+        return header.toEpochNanos(buffer.getLong(startNanosOffset + recordIndex * 8));
+    }
+
+    public long getDurationNanos() {
+        return buffer.getLong(durationNanosOffset + recordIndex * 8);
+    }
+
+    // nanoseconds since the epoch, 0 for closed loop runs
+    public long getIntendedStartNanos() {
+        long intendedStartNanos = buffer.getLong(intendedStartNanosOffset + recordIndex * 8);
+        return intendedStartNanos == 0 ? 0 : header.toEpochNanos(intendedStartNanos);
+    }
+
+    public long getConnectionWaitNanos() {
+        return buffer.getLong(connectionWaitNanosOffset + recordIndex * 8);
+    }
+
+    public int getAttempt() {
+        return buffer.getInt(attemptOffset + recordIndex * 4);
+    }
+
+    public long getRetryWaitNanos() {
+        return buffer.getLong(retryWaitNanosOffset + recordIndex * 8);
+    }
+
+    public String getServerAddress() {
+        return getString(buffer.getInt(serverIdOffset + recordIndex * 4));
+    }
+
+    public String getString(int id) {
+        if (id == TraceSegmentWriter.NO_STRING) {
+            return null;
+        }
+        if (dictionaryStrings[id] == null) {
+            byte[] bytes = new byte[dictionaryLengths[id]];
+            ByteBuffer view = buffer.duplicate();
+            view.position(dictionaryOffsets[id]);
+            view.get(bytes);
+            dictionaryStrings[id] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return dictionaryStrings[id];
+    }
+
+    // materializes the current record for the code that still works on WorkloadQuery lists
+    public WorkloadQuery toWorkloadQuery() {
+        WorkloadQuery workloadQuery = new WorkloadQuery();
+        workloadQuery.templateId = getTemplateId();
+        workloadQuery.parameterHash = getParameterHash();
+        workloadQuery.sqlString = getSqlString();
+        workloadQuery.workloadContextId = getWorkloadContextId();
+        workloadQuery.executingOrderId = getSequenceId();
+        workloadQuery.startNanos = getStartNanos();
+        workloadQuery.durationNanos = getDurationNanos();
+        workloadQuery.intendedStartNanos = getIntendedStartNanos();
+        workloadQuery.connectionWaitNanos = getConnectionWaitNanos();
+        workloadQuery.attempt = getAttempt();
+        workloadQuery.retryWaitNanos = getRetryWaitNanos();
+        workloadQuery.serverAddress = getServerAddress();
+        return workloadQuery;
+    }
+
+    private boolean readNextBlock() {
+        int offset = nextBlockOffset;
+        if (offset + 8 > buffer.limit()) {
+            blockRecordCount = 0;
+            return false;
+        }
+        int recordCount = buffer.getInt(offset);
+        offset += 4;
+
+        // the templates and dictionary entries are only registered once the whole block is known to be complete
+        int templateStart = offset;
+        int newTemplates = buffer.getInt(offset);
+        offset += 4;
+        for (int i = 0; i < newTemplates; i++) {
+            if (offset + 8 > buffer.limit()) {
+                return truncated();
+            }
+            offset += 8 + buffer.getInt(offset + 4);
+        }
+        if (offset + 4 > buffer.limit()) {
+            return truncated();
+        }
+        int newDictionaryEntries = buffer.getInt(offset);
+        offset += 4;
+        int dictionaryStart = offset;
+        for (int i = 0; i < newDictionaryEntries; i++) {
+            if (offset + 4 > buffer.limit()) {
+                return truncated();
+            }
+            offset += 4 + buffer.getInt(offset);
+        }
+        long blockEnd = (long) offset + (long) recordCount * TraceSegmentWriter.RECORD_BYTES;
+        if (recordCount <= 0 || blockEnd > buffer.limit()) {
+            return truncated();
+        }
+
+        offset = templateStart + 4;
+        for (int i = 0; i < newTemplates; i++) {
+            int templateId = buffer.getInt(offset);
+            byte[] bytes = new byte[buffer.getInt(offset + 4)];
+            ByteBuffer view = buffer.duplicate();
+            view.position(offset + 8);
+            view.get(bytes);
+            templateMap.put(templateId, new String(bytes, StandardCharsets.UTF_8));
+            offset += 8 + bytes.length;
+        }
+        offset = dictionaryStart;
+        for (int i = 0; i < newDictionaryEntries; i++) {
+            int length = buffer.getInt(offset);
+            addDictionaryEntry(offset + 4, length);
+            offset += 4 + length;
+        }
+
+        sequenceIdOffset = offset;
+        threadIdOffset = sequenceIdOffset + recordCount * 8;
+        templateIdOffset = threadIdOffset + recordCount * 8;
+        parameterHashOffset = templateIdOffset + recordCount * 4;
+        startNanosOffset = parameterHashOffset + recordCount * 4;
+        durationNanosOffset = startNanosOffset + recordCount * 8;
+        intendedStartNanosOffset = durationNanosOffset + recordCount * 8;
+        connectionWaitNanosOffset = intendedStartNanosOffset + recordCount * 8;
+        attemptOffset = connectionWaitNanosOffset + recordCount * 8;
+        retryWaitNanosOffset = attemptOffset + recordCount * 4;
+        serverIdOffset = retryWaitNanosOffset + recordCount * 8;
+
+        nextBlockOffset = (int) blockEnd;
+        blockRecordCount = recordCount;
+        recordIndex = 0;
+        return true;
+    }
+
+    private boolean truncated() {
+        isTruncated = true;
+        nextBlockOffset = buffer.limit();
+        blockRecordCount = 0;
+        return false;
+    }
+
+    private void addDictionaryEntry(int offset, int length) {
+        if (dictionarySize == dictionaryOffsets.length) {
+            dictionaryOffsets = Arrays.copyOf(dictionaryOffsets, dictionarySize * 2);
+            dictionaryLengths = Arrays.copyOf(dictionaryLengths, dictionarySize * 2);
+            dictionaryStrings = Arrays.copyOf(dictionaryStrings, dictionarySize * 2);
+        }
+        dictionaryOffsets[dictionarySize] = offset;
+        dictionaryLengths[dictionarySize] = length;
+        dictionarySize++;
+    }
+}
@@ -0,0 +1,187 @@
+package berlin.tu.csb.controller;
+
+import berlin.tu.csb.model.WorkloadQuery;
+import berlin.tu.csb.model.WorkloadTrace;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes one binary trace segment.
+ * Layout (big endian): a header with magic, version, thread id and the clock anchor, followed by blocks of up to
+ * BLOCK_SIZE records. A block starts with the record count, the query templates (id and text) and the dictionary
+ * strings that are new in this block, then holds every column as a fixed width array. The records reference their
+ * template by its stable id, other strings (the server address) by their position in the dictionary of the segment.
+ **/
+class TraceSegmentWriter implements AutoCloseable {
+    static final int MAGIC = 0x43534254; // "CSBT"
+    static final int VERSION = 2;
+    static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 8;
+    // sequence id, thread id, template id, parameter hash, start, duration, intended start, connection wait, attempt, retry wait, server id
+    static final int RECORD_BYTES = 8 + 8 + 4 + 4 + 8 + 8 + 8 + 8 + 4 + 8 + 4;
+    static final int BLOCK_SIZE = 1024;
+    static final int NO_STRING = -1;
+
+    // bounds the lookup map on segments with many distinct strings, a string seen again after a reset gets a new id
+    private static final int MAX_DICTIONARY_LOOKUP_SIZE = 65536;
+
+    private final FileChannel channel;
+    private final Set<Integer> writtenTemplateIds = new HashSet<>();
+    private final List<Integer> newTemplateIds = new ArrayList<>();
+    private final Map<String, Integer> dictionaryLookup = new HashMap<>();
+    private final List<byte[]> newDictionaryEntries = new ArrayList<>();
+    private int dictionarySize = 0;
+
+    private final long[] sequenceIds = new long[BLOCK_SIZE];
+    private final long[] threadIds = new long[BLOCK_SIZE];
+    private final int[] templateIds = new int[BLOCK_SIZE];
+    private final int[] parameterHashes = new int[BLOCK_SIZE];
+    private final long[] startNanos = new long[BLOCK_SIZE];
+    private final long[] durationNanos = new long[BLOCK_SIZE];
+    private final long[] intendedStartNanos = new long[BLOCK_SIZE];
+    private final long[] connectionWaitNanos = new long[BLOCK_SIZE];
+    private final int[] attempts = new int[BLOCK_SIZE];
+    private final long[] retryWaitNanos = new long[BLOCK_SIZE];
+    private final int[] serverIds = new int[BLOCK_SIZE];
+    private int pendingRecords = 0;
+    private long bytesWritten = 0;
+
+    TraceSegmentWriter(Path path, WorkloadTrace header) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer headerBuffer = ByteBuffer.allocate(HEADER_BYTES);
+        headerBuffer.putInt(MAGIC);
+        headerBuffer.putInt(VERSION);
+        headerBuffer.putLong(header.workloadContextId);
+        headerBuffer.putLong(header.anchorEpochNanos);
+        headerBuffer.putLong(header.anchorNanoTime);
+        headerBuffer.flip();
+        writeFully(headerBuffer);
+    }
+
+    void append(WorkloadQuery workloadQuery) throws IOException {
+        int i = pendingRecords++;
+        sequenceIds[i] = workloadQuery.executingOrderId;
+        threadIds[i] = workloadQuery.workloadContextId;
+        templateIds[i] = workloadQuery.templateId;
+        if (writtenTemplateIds.add(workloadQuery.templateId)) {
+            newTemplateIds.add(workloadQuery.templateId);
+        }
+        parameterHashes[i] = workloadQuery.parameterHash;
+        startNanos[i] = workloadQuery.startNanos;
+        durationNanos[i] = workloadQuery.durationNanos;
+        intendedStartNanos[i] = workloadQuery.intendedStartNanos;
+        connectionWaitNanos[i] = workloadQuery.connectionWaitNanos;
+        attempts[i] = workloadQuery.attempt;
+        retryWaitNanos[i] = workloadQuery.retryWaitNanos;
+        serverIds[i] = getStringId(workloadQuery.serverAddress);
+        if (pendingRecords == BLOCK_SIZE) {
+            flush();
+        }
+    }
+
+    // writes the pending records as one block
+    void flush() throws IOException {
+        if (pendingRecords == 0) {
+            return;
+        }
+        List<byte[]> newTemplates = new ArrayList<>(newTemplateIds.size());
+        int dictionaryBytes = 0;
+        for (int templateId : newTemplateIds) {
+            String template = QueryTemplateRegistry.getTemplate(templateId);
+            byte[] templateBytes = (template == null ? "" : template).getBytes(StandardCharsets.UTF_8);
+            newTemplates.add(templateBytes);
+            dictionaryBytes += 4 + 4 + templateBytes.length;
+        }
+        for (byte[] entry : newDictionaryEntries) {
+            dictionaryBytes += 4 + entry.length;
+        }
+        ByteBuffer block = ByteBuffer.allocate(4 + 4 + 4 + dictionaryBytes + pendingRecords * RECORD_BYTES);
+        block.putInt(pendingRecords);
+        block.putInt(newTemplateIds.size());
+        for (int i = 0; i < newTemplateIds.size(); i++) {
+            block.putInt(newTemplateIds.get(i));
+            block.putInt(newTemplates.get(i).length);
+            block.put(newTemplates.get(i));
+        }
+        block.putInt(newDictionaryEntries.size());
+        for (byte[] entry : newDictionaryEntries) {
+            block.putInt(entry.length);
+            block.put(entry);
+        }
+        block.asLongBuffer().put(sequenceIds, 0, pendingRecords);
+        block.position(block.position() + pendingRecords * 8);
+        block.asLongBuffer().put(threadIds, 0, pendingRecords);
+        block.position(block.position() + pendingRecords * 8);
+        block.asIntBuffer().put(templateIds, 0, pendingRecords);
+        block.position(block.position() + pendingRecords * 4);
+        block.asIntBuffer().put(parameterHashes, 0, pendingRecords);
+        block.position(block.position() + pendingRecords * 4);
+        block.asLongBuffer().put(startNanos, 0, pendingRecords);
+        block.position(block.position() + pendingRecords * 8);
+        block.asLongBuffer().put(durationNanos, 0, pendingRecords);
+        block.position(block.position() + pendingRecords * 8);
+        block.asLongBuffer().put(intendedStartNanos, 0, pendingRecords);
+        block.position(block.position() + pendingRecords * 8);
+        block.asLongBuffer().put(connectionWaitNanos, 0, pendingRecords);
+        block.position(block.position() + pendingRecords * 8);
+        block.asIntBuffer().put(attempts, 0, pendingRecords);
+        block.position(block.position() + pendingRecords * 4);
+        block.asLongBuffer().put(retryWaitNanos, 0, pendingRecords);
+        block.position(block.position() + pendingRecords * 8);
+        block.asIntBuffer().put(serverIds, 0, pendingRecords);
+        block.position(block.position() + pendingRecords * 4);
+        block.flip();
+        writeFully(block);
+
+        newTemplateIds.clear();
+        newDictionaryEntries.clear();
+        pendingRecords = 0;
+    }
+
+    long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private int getStringId(String value) {
+        if (value == null) {
+            return NO_STRING;
+        }
+        Integer id = dictionaryLookup.get(value);
+        if (id != null) {
+            return id;
+        }
+        if (dictionaryLookup.size() >= MAX_DICTIONARY_LOOKUP_SIZE) {
+            dictionaryLookup.clear();
+        }
+        id = dictionarySize++;
+        dictionaryLookup.put(value, id);
+        newDictionaryEntries.add(value.getBytes(StandardCharsets.UTF_8));
+        return id;
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        bytesWritten += buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
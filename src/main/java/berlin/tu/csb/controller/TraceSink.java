@@ -0,0 +1,155 @@
+package berlin.tu.csb.controller;
+
+import berlin.tu.csb.model.BenchmarkConfig;
+import berlin.tu.csb.model.WorkloadQuery;
+import berlin.tu.csb.model.WorkloadTrace;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes the queries of one worker thread to disk while the run is going on.
+ * The worker only puts records into a bounded queue, a background thread appends them to binary segment files
+ * (<prefix>_<thread>_<segment>.trace, see TraceSegmentWriter) and starts a new segment when the current one reaches the size limit.
+ * The writer flushes periodically, so a crash only loses the records of the last flush interval.
+ **/
+public class TraceSink {
+    private static final int DEFAULT_QUEUE_CAPACITY = 65536;
+    private static final long DEFAULT_SEGMENT_SIZE_BYTES = 64L * 1024 * 1024;
+    private static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+    private static final int DRAIN_BATCH_SIZE = 1024;
+    // the sinks are created by the main thread before the worker ran a query, so neither thread id is known yet
+    private static final AtomicInteger sinkCounter = new AtomicInteger();
+
+    static Logger logger = LogManager.getLogger(TraceSink.class);
+
+    private final Path directory;
+    private final String filePrefix;
+    private final WorkloadTrace header;
+    private final BlockingQueue<WorkloadQuery> queue;
+    private final long segmentSizeBytes;
+    private final long flushIntervalNanos;
+    private final Thread writerThread;
+
+    private volatile boolean closed = false;
+    private volatile boolean isWriterFailed = false;
+    private long stalls = 0;
+    // added is counted by the worker, written by the writer thread, both are compared after the writer thread ended
+    private long recordsAdded = 0;
+    private long recordsWritten = 0;
+    private int segmentNumber = 0;
+    private TraceSegmentWriter segmentWriter;
+
+    TraceSink(Path directory, String filePrefix, WorkloadTrace header, BenchmarkConfig benchmarkConfig) {
+        this.directory = directory;
+        this.filePrefix = filePrefix;
+        this.header = header;
+        this.queue = new ArrayBlockingQueue<>(benchmarkConfig.traceQueueCapacity > 0 ? benchmarkConfig.traceQueueCapacity : DEFAULT_QUEUE_CAPACITY);
+        this.segmentSizeBytes = benchmarkConfig.traceSegmentSizeInBytes > 0 ? benchmarkConfig.traceSegmentSizeInBytes : DEFAULT_SEGMENT_SIZE_BYTES;
+        this.flushIntervalNanos = (benchmarkConfig.traceFlushIntervalInMilliseconds > 0 ? benchmarkConfig.traceFlushIntervalInMilliseconds : DEFAULT_FLUSH_INTERVAL_MILLIS) * 1_000_000L;
+        this.writerThread = new Thread(this::writeLoop, "trace-sink-" + sinkCounter.incrementAndGet());
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    // called by the worker thread only
+    void add(WorkloadQuery workloadQuery) {
+        recordsAdded++;
+        if (queue.offer(workloadQuery)) {
+            return;
+        }
+        // the writer can not keep up, block instead of dropping records or growing the heap, unless it failed for good
+        stalls++;
+        try {
+            while (!isWriterFailed && !queue.offer(workloadQuery, flushIntervalNanos, TimeUnit.NANOSECONDS)) {
+                // waits for the writer
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop() {
+        List<WorkloadQuery> batch = new ArrayList<>(DRAIN_BATCH_SIZE);
+        long lastFlushNanos = System.nanoTime();
+        try {
+            while (!closed || !queue.isEmpty()) {
+                WorkloadQuery first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, DRAIN_BATCH_SIZE - 1);
+                    for (WorkloadQuery workloadQuery : batch) {
+                        write(workloadQuery);
+                    }
+                    batch.clear();
+                }
+                if (segmentWriter != null && System.nanoTime() - lastFlushNanos >= flushIntervalNanos) {
+                    segmentWriter.flush();
+                    lastFlushNanos = System.nanoTime();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            isWriterFailed = true;
+            logger.error("Writing the trace of thread " + header.workloadContextId + " failed, the following records are dropped: " + e.getMessage());
+        } finally {
+            closeSegment();
+        }
+    }
+
+    private void write(WorkloadQuery workloadQuery) throws IOException {
+        if (segmentWriter == null || segmentWriter.getBytesWritten() >= segmentSizeBytes) {
+            closeSegment();
+            openSegment(workloadQuery.workloadContextId);
+        }
+        segmentWriter.append(workloadQuery);
+        recordsWritten++;
+    }
+
+    private void openSegment(long workloadContextId) throws IOException {
+        // the worker thread id is only known once it executed its first query
+        header.workloadContextId = workloadContextId;
+        Files.createDirectories(directory);
+        Path segmentPath = directory.resolve(String.format("%s_%d_%04d.trace", filePrefix, workloadContextId, segmentNumber++));
+        segmentWriter = new TraceSegmentWriter(segmentPath, header);
+    }
+
+    private void closeSegment() {
+        if (segmentWriter == null) {
+            return;
+        }
+        try {
+            segmentWriter.close();
+        } catch (IOException e) {
+            logger.error("Closing a trace segment of thread " + header.workloadContextId + " failed: " + e.getMessage());
+        }
+        segmentWriter = null;
+    }
+
+    // waits until every queued record is on disk
+    void close() {
+        closed = true;
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        long recordsDropped = recordsAdded - recordsWritten;
+        String summary = String.format("Trace of thread %d: %d records written in %d segments, %d records dropped, the worker had to wait for the writer %d times", header.workloadContextId, recordsWritten, segmentNumber, recordsDropped, stalls);
+        if (recordsDropped > 0) {
+            logger.warn(summary);
+        } else {
+            logger.info(summary);
+        }
+    }
+}
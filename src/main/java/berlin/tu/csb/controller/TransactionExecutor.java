@@ -0,0 +1,272 @@
+package berlin.tu.csb.controller;
+
+import berlin.tu.csb.model.BenchmarkConfig;
+import berlin.tu.csb.model.TransactionStatistics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs every database operation of a BenchmarkDAO, including the connection checkout, the CockroachDB retry
+ * handling and the bookkeeping of attempts, retry wait time and aborts per operation.
+ * Not thread safe, like the DAO it belongs to every worker thread has its own instance.
+ **/
+class TransactionExecutor {
+    private static final String RETRY_SQL_STATE = "40001";
+    private static final int DEFAULT_MAX_RETRIES = 3;
+    private static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 100;
+    private static final long DEFAULT_MAX_BACKOFF_MILLIS = 2000;
+    private static final long DEFAULT_DEADLINE_MILLIS = 10000;
+
+    interface TransactionCallback<T> {
+        T doInTransaction(Connection connection) throws SQLException;
+    }
+
+    private enum Mode {
+        // one implicit transaction per statement (auto commit), a retry error replays the whole callback
+        AUTO_COMMIT,
+        // explicit transaction with the SAVEPOINT cockroach_restart client side retry protocol
+        SAVEPOINT_RESTART,
+        // the callback can not be replayed, e.g. because it consumes a stream
+        NO_RETRY
+    }
+
+    static Logger logger = LogManager.getLogger(TransactionExecutor.class);
+
+    private final DataSource ds;
+    private final WorkloadQueryController workloadQueryController;
+    private final int maxRetries;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final long deadlineNanos;
+
+    private final int maxFailovers;
+
+    private int currentAttempt = 0;
+    private long currentRetryWaitNanos = 0;
+    private OperationMetrics currentOperationMetrics;
+    private MetricsRegistry.OperationCounters currentOperationCounters;
+    // running totals of this thread, a use case reads the difference before and after it ran
+    private long statementCount = 0;
+    private long rowCount = 0;
+    private long abortCount = 0;
+    Map<String, TransactionStatistics> transactionStatisticsMap = new LinkedHashMap<>();
+    private final Map<String, OperationMetrics> operationMetricsMap = new HashMap<>();
+    private final Map<String, MetricsRegistry.OperationCounters> operationCountersMap = new HashMap<>();
+
+    TransactionExecutor(DataSource ds, WorkloadQueryController workloadQueryController, BenchmarkConfig benchmarkConfig) {
+        this.ds = ds;
+        this.workloadQueryController = workloadQueryController;
+        this.maxRetries = benchmarkConfig.transactionMaxRetries > 0 ? benchmarkConfig.transactionMaxRetries : DEFAULT_MAX_RETRIES;
+        this.initialBackoffNanos = (benchmarkConfig.transactionRetryInitialBackoffInMilliseconds > 0 ? benchmarkConfig.transactionRetryInitialBackoffInMilliseconds : DEFAULT_INITIAL_BACKOFF_MILLIS) * 1_000_000L;
+        this.maxBackoffNanos = (benchmarkConfig.transactionRetryMaxBackoffInMilliseconds > 0 ? benchmarkConfig.transactionRetryMaxBackoffInMilliseconds : DEFAULT_MAX_BACKOFF_MILLIS) * 1_000_000L;
+        // try every other node once
+        this.maxFailovers = ds instanceof LoadBalancingDataSource ? ((LoadBalancingDataSource) ds).getNodeCount() - 1 : 0;
+        this.deadlineNanos = (benchmarkConfig.transactionDeadlineInMilliseconds > 0 ? benchmarkConfig.transactionDeadlineInMilliseconds : DEFAULT_DEADLINE_MILLIS) * 1_000_000L;
+    }
+
+    <T> T execute(String operationName, TransactionCallback<T> callback) throws SQLException {
+        return run(operationName, Mode.AUTO_COMMIT, callback);
+    }
+
+    <T> T executeInTransaction(String operationName, TransactionCallback<T> callback) throws SQLException {
+        return run(operationName, Mode.SAVEPOINT_RESTART, callback);
+    }
+
+    <T> T executeWithoutRetry(String operationName, TransactionCallback<T> callback) throws SQLException {
+        return run(operationName, Mode.NO_RETRY, callback);
+    }
+
+    // called for every statement the current operation sends
+    void countStatement() {
+        currentOperationCounters.statements.increment();
+        statementCount++;
+    }
+
+    void countRows(int rows) {
+        rowCount += rows;
+    }
+
+    long getStatementCount() {
+        return statementCount;
+    }
+
+    long getRowCount() {
+        return rowCount;
+    }
+
+    long getAbortCount() {
+        return abortCount;
+    }
+
+    // 1 for the first try of the operation that is currently executed, 2 for the first retry and so on
+    int getCurrentAttempt() {
+        return currentAttempt;
+    }
+
+    private <T> T run(String operationName, Mode mode, TransactionCallback<T> callback) throws SQLException {
+        TransactionStatistics transactionStatistics = transactionStatisticsMap.computeIfAbsent(operationName, key -> {
+            TransactionStatistics newTransactionStatistics = new TransactionStatistics();
+            newTransactionStatistics.operationName = key;
+            return newTransactionStatistics;
+        });
+        transactionStatistics.executions++;
+        currentOperationMetrics = operationMetricsMap.computeIfAbsent(operationName, LiveMetricsReporter::register);
+        currentOperationCounters = operationCountersMap.computeIfAbsent(operationName, MetricsRegistry::getOperationCounters);
+
+        BenchmarkEvents.OperationEvent operationEvent = new BenchmarkEvents.OperationEvent();
+        operationEvent.begin();
+        long startNanos = System.nanoTime();
+        currentAttempt = 0;
+        currentRetryWaitNanos = 0;
+        int failovers = 0;
+
+        try {
+            while (true) {
+                // the checkout is part of the operation, a pool timeout or a refused connection is accounted like any other failure
+                String serverAddress = null;
+                try (Connection connection = getConnection()) {
+                    if (connection instanceof LoadBalancedConnection) {
+                        serverAddress = ((LoadBalancedConnection) connection).getServerAddress();
+                    }
+                    T result = runOnConnection(connection, operationName, mode, callback, transactionStatistics, startNanos);
+                    // the latency of the whole operation, including retries and failovers
+                    currentOperationMetrics.latencyHistogram.record(System.nanoTime() - startNanos);
+                    currentOperationCounters.increment(MetricsRegistry.Outcome.SUCCESS);
+                    commitOperationEvent(operationEvent, operationName, MetricsRegistry.Outcome.SUCCESS);
+                    return result;
+                } catch (SQLException e) {
+                    // with a load balanced data source a broken node is not the end of the operation, it is replayed on another node
+                    if (mode == Mode.NO_RETRY || !isConnectionFailure(e) || !(ds instanceof LoadBalancingDataSource) || failovers >= maxFailovers) {
+                        transactionStatistics.aborts++;
+                        abortCount++;
+                        currentOperationMetrics.errors.incrementAndGet();
+                        currentOperationCounters.increment(MetricsRegistry.Outcome.FAILURE);
+                        commitOperationEvent(operationEvent, operationName, MetricsRegistry.Outcome.FAILURE);
+                        throw e;
+                    }
+                    failovers++;
+                    transactionStatistics.failovers++;
+                    logger.warn(String.format("%s lost its connection in attempt %d, failing over to another node: %s", operationName, currentAttempt, e.getMessage()));
+                    ((LoadBalancingDataSource) ds).reportConnectionFailure(serverAddress, e);
+                }
+            }
+        } finally {
+            workloadQueryController.setTransactionAttempt(0, 0);
+        }
+    }
+
+    private <T> T runOnConnection(Connection connection, String operationName, Mode mode, TransactionCallback<T> callback, TransactionStatistics transactionStatistics, long startNanos) throws SQLException {
+        if (mode == Mode.SAVEPOINT_RESTART) {
+            connection.setAutoCommit(false);
+        }
+        try (Statement statement = connection.createStatement()) {
+            if (mode == Mode.SAVEPOINT_RESTART) {
+                statement.execute("SAVEPOINT cockroach_restart");
+            }
+            while (true) {
+                currentAttempt++;
+                transactionStatistics.attempts++;
+                workloadQueryController.setTransactionAttempt(currentAttempt, currentRetryWaitNanos);
+                try {
+                    T result = callback.doInTransaction(connection);
+                    if (mode == Mode.SAVEPOINT_RESTART) {
+                        statement.execute("RELEASE SAVEPOINT cockroach_restart");
+                        connection.commit();
+                    }
+                    return result;
+                } catch (SQLException e) {
+                    long backoffNanos = getBackoffNanos(currentAttempt);
+                    boolean isRetryable = mode != Mode.NO_RETRY
+                            && RETRY_SQL_STATE.equals(e.getSQLState())
+                            && currentAttempt <= maxRetries
+                            && System.nanoTime() + backoffNanos - startNanos < deadlineNanos;
+                    if (!isRetryable) {
+                        if (mode == Mode.SAVEPOINT_RESTART && !isConnectionFailure(e)) {
+                            // a failing rollback must not replace the error that ended the operation
+                            try {
+                                connection.rollback();
+                            } catch (SQLException rollbackException) {
+                                e.addSuppressed(rollbackException);
+                            }
+                        }
+                        throw e;
+                    }
+
+                    logger.debug(String.format("%s hit a retryable error in attempt %d, retrying in %d ms: %s", operationName, currentAttempt, backoffNanos / 1_000_000L, e.getMessage()));
+                    if (mode == Mode.SAVEPOINT_RESTART) {
+                        // keeps the transaction and its priority alive, so the retry is more likely to win the next conflict
+                        statement.execute("ROLLBACK TO SAVEPOINT cockroach_restart");
+                    }
+                    transactionStatistics.retries++;
+                    currentOperationMetrics.retries.incrementAndGet();
+                    currentOperationCounters.increment(MetricsRegistry.Outcome.RETRY);
+                    BenchmarkEvents.RetryEvent retryEvent = new BenchmarkEvents.RetryEvent();
+                    retryEvent.begin();
+                    long beforeBackoff = System.nanoTime();
+                    LockSupport.parkNanos(backoffNanos);
+                    long waitedNanos = System.nanoTime() - beforeBackoff;
+                    retryEvent.end();
+                    if (retryEvent.shouldCommit()) {
+                        retryEvent.operationName = operationName;
+                        retryEvent.attempt = currentAttempt;
+                        retryEvent.sqlState = e.getSQLState();
+                        retryEvent.commit();
+                    }
+                    currentRetryWaitNanos += waitedNanos;
+                    transactionStatistics.retryWaitNanos += waitedNanos;
+                }
+            }
+        }
+    }
+
+    // SQL state class 08 (connection exception), the shutdown states of a draining node and a pool that could not hand out a connection in time
+    private static boolean isConnectionFailure(SQLException e) {
+        String sqlState = e.getSQLState();
+        return e instanceof SQLTransientConnectionException || sqlState != null && (sqlState.startsWith("08") || sqlState.startsWith("57P"));
+    }
+
+    // exponential backoff with equal jitter, the random part keeps competing transactions from retrying in lockstep
+    private long getBackoffNanos(int attempt) {
+        long exponentialBackoffNanos = Math.min(maxBackoffNanos, initialBackoffNanos << Math.min(attempt - 1, 30));
+        return exponentialBackoffNanos / 2 + ThreadLocalRandom.current().nextLong(exponentialBackoffNanos / 2 + 1);
+    }
+
+    private Connection getConnection() throws SQLException {
+        BenchmarkEvents.ConnectionAcquisitionEvent connectionAcquisitionEvent = new BenchmarkEvents.ConnectionAcquisitionEvent();
+        connectionAcquisitionEvent.begin();
+        long beforeConnectionAcquisition = System.nanoTime();
+        Connection connection = ds.getConnection();
+        workloadQueryController.setConnectionWaitNanos(System.nanoTime() - beforeConnectionAcquisition);
+        if (connection instanceof LoadBalancedConnection) {
+            workloadQueryController.setServerAddress(((LoadBalancedConnection) connection).getServerAddress());
+        }
+        connectionAcquisitionEvent.end();
+        if (connectionAcquisitionEvent.shouldCommit()) {
+            connectionAcquisitionEvent.serverAddress = workloadQueryController.serverAddress;
+            connectionAcquisitionEvent.commit();
+        }
+        return connection;
+    }
+
+    private void commitOperationEvent(BenchmarkEvents.OperationEvent operationEvent, String operationName, MetricsRegistry.Outcome outcome) {
+        operationEvent.end();
+        if (operationEvent.shouldCommit()) {
+            operationEvent.operationName = operationName;
+            operationEvent.outcome = outcome.name();
+            operationEvent.attempts = currentAttempt;
+            operationEvent.serverAddress = workloadQueryController.serverAddress;
+            operationEvent.commit();
+        }
+    }
+}
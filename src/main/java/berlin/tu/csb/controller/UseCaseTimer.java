@@ -0,0 +1,106 @@
+package berlin.tu.csb.controller;
+
+import berlin.tu.csb.model.UseCaseStatistics;
+import java.util.List;
+
+/**
+ * Measures every invocation of a run phase use case as one unit: duration, statements, returned rows and outcome.
+ * The numbers of the statements and rows come from the TransactionExecutor of the thread, as the difference before and
+ * after the use case ran. Every thread has its own timer per use case, MainController merges them at the end.
+ **/
+class UseCaseTimer implements Runnable {
+    final String useCaseName;
+    private final Runnable useCase;
+    private final TransactionExecutor transactionExecutor;
+    private final OperationMetrics operationMetrics;
+
+    final LatencyHistogram latencyHistogram = new LatencyHistogram();
+    long invocations = 0;
+    long successes = 0;
+    long failures = 0;
+    long statements = 0;
+    long rowsReturned = 0;
+    long firstStartNanos = Long.MAX_VALUE;
+    long lastEndNanos = Long.MIN_VALUE;
+
+    UseCaseTimer(String useCaseName, Runnable useCase, TransactionExecutor transactionExecutor) {
+        this.useCaseName = useCaseName;
+        this.useCase = useCase;
+        this.transactionExecutor = transactionExecutor;
+        this.operationMetrics = LiveMetricsReporter.registerUseCase(useCaseName);
+    }
+
+    @Override
+    public void run() {
+        long statementsBefore = transactionExecutor.getStatementCount();
+        long rowsBefore = transactionExecutor.getRowCount();
+        long abortsBefore = transactionExecutor.getAbortCount();
+        boolean isSuccessful = false;
+
+        BenchmarkEvents.UseCaseEvent useCaseEvent = new BenchmarkEvents.UseCaseEvent();
+        useCaseEvent.begin();
+        long startNanos = System.nanoTime();
+        try {
+            useCase.run();
+            isSuccessful = transactionExecutor.getAbortCount() == abortsBefore;
+        } finally {
+            // an exception still ends the thread as before, but the failed invocation is counted first
+            record(startNanos, System.nanoTime(), isSuccessful, statementsBefore, rowsBefore, useCaseEvent);
+        }
+    }
+
+    private void record(long startNanos, long endNanos, boolean isSuccessful, long statementsBefore, long rowsBefore, BenchmarkEvents.UseCaseEvent useCaseEvent) {
+        long useCaseStatements = transactionExecutor.getStatementCount() - statementsBefore;
+        long useCaseRows = transactionExecutor.getRowCount() - rowsBefore;
+        useCaseEvent.end();
+        if (useCaseEvent.shouldCommit()) {
+            useCaseEvent.useCaseName = useCaseName;
+            useCaseEvent.isSuccessful = isSuccessful;
+            useCaseEvent.statements = useCaseStatements;
+            useCaseEvent.rowsReturned = useCaseRows;
+            useCaseEvent.commit();
+        }
+
+        invocations++;
+        statements += useCaseStatements;
+        rowsReturned += useCaseRows;
+        firstStartNanos = Math.min(firstStartNanos, startNanos);
+        lastEndNanos = Math.max(lastEndNanos, endNanos);
+        if (isSuccessful) {
+            successes++;
+            latencyHistogram.record(endNanos - startNanos);
+            operationMetrics.latencyHistogram.record(endNanos - startNanos);
+        } else {
+            failures++;
+            operationMetrics.errors.incrementAndGet();
+        }
+    }
+
+    // merges the timers of all threads by use case name
+    static UseCaseStatistics merge(String useCaseName, List<UseCaseTimer> useCaseTimerList) {
+        LatencyHistogram mergedHistogram = new LatencyHistogram();
+        UseCaseStatistics useCaseStatistics = new UseCaseStatistics();
+        useCaseStatistics.useCaseName = useCaseName;
+        long firstStartNanos = Long.MAX_VALUE;
+        long lastEndNanos = Long.MIN_VALUE;
+        for (UseCaseTimer useCaseTimer : useCaseTimerList) {
+            mergedHistogram.merge(useCaseTimer.latencyHistogram);
+            useCaseStatistics.invocations += useCaseTimer.invocations;
+            useCaseStatistics.successes += useCaseTimer.successes;
+            useCaseStatistics.failures += useCaseTimer.failures;
+            useCaseStatistics.statements += useCaseTimer.statements;
+            useCaseStatistics.rowsReturned += useCaseTimer.rowsReturned;
+            firstStartNanos = Math.min(firstStartNanos, useCaseTimer.firstStartNanos);
+            lastEndNanos = Math.max(lastEndNanos, useCaseTimer.lastEndNanos);
+        }
+        if (lastEndNanos > firstStartNanos) {
+            useCaseStatistics.throughputPerSecond = useCaseStatistics.successes / ((lastEndNanos - firstStartNanos) / 1_000_000_000d);
+        }
+        useCaseStatistics.meanMillis = mergedHistogram.getMeanNanos() / 1_000_000d;
+        useCaseStatistics.p50Millis = mergedHistogram.getValueAtPercentileInMilliseconds(50);
+        useCaseStatistics.p95Millis = mergedHistogram.getValueAtPercentileInMilliseconds(95);
+        useCaseStatistics.p99Millis = mergedHistogram.getValueAtPercentileInMilliseconds(99);
+        useCaseStatistics.maxMillis = mergedHistogram.getMaxNanos() / 1_000_000d;
+        return useCaseStatistics;
+    }
+}
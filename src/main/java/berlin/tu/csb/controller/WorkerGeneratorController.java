@@ -7,6 +7,8 @@ import berlin.tu.csb.model.OrderLine;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 public class WorkerGeneratorController {
     SeededRandomHelper seededRandomHelper;
@@ -102,6 +104,48 @@ public class WorkerGeneratorController {
         return isSuccessful;
     }
 
+    public boolean copyNewCustomers(long amount) {
+        // the customers are generated lazily while the COPY stream pulls them
+        if (!persistenceController.copyCustomers(Stream.generate(this::getNewCustomerModelWithRandomData).limit(amount))) {
+            System.out.printf("Error while copying %d Customers", amount);
+            return false;
+        }
+        return true;
+    }
+
+    public boolean copyNewItems(long amount) {
+        if (!persistenceController.copyItems(Stream.generate(this::getNewItemModelWithRandomData).limit(amount))) {
+            System.out.printf("Error while copying %d Items", amount);
+            return false;
+        }
+        return true;
+    }
+
+    public boolean copyNewOrdersWithOrderLines(long amount) {
+        if (!persistenceController.stateController.hasCustomer() || !persistenceController.stateController.hasItems()) {
+            System.out.println("Error: no customers or items in local state");
+            return false;
+        }
+
+        // Phase 1: stream the orders, they need to be committed before the order lines can reference them
+        int firstOrderIndex = persistenceController.stateController.getOrderSize();
+        if (!persistenceController.copyOrders(Stream.generate(() -> getNewOrderModelWithRandomData(persistenceController.stateController.getRandomCustomer())).limit(amount))) {
+            System.out.printf("Error while copying %d Orders", amount);
+            return false;
+        }
+
+        // Phase 2: stream the order lines for the orders that were just copied
+        int lastOrderIndex = persistenceController.stateController.getOrderSize();
+        Stream<OrderLine> orderLineStream = IntStream.range(firstOrderIndex, lastOrderIndex)
+                .mapToObj(persistenceController.stateController::getOrder)
+                .flatMap(order -> getNewOrderLineModelList(order, persistenceController.stateController.getRandomItems(seededRandomHelper.getIntBetween(1, 8))).stream());
+        if (!persistenceController.copyOrderLines(orderLineStream)) {
+            System.out.printf("Error while copying the OrderLines of %d Orders", amount);
+            return false;
+        }
+        return true;
+    }
+
     public boolean bulkInsertNewOrdersWithOrderLines(long amount) {
         /*
          *
@@ -0,0 +1,100 @@
+package berlin.tu.csb.controller;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The queries of one trace file as primitive columns, so a run of several gigabytes fits into the heap of the analysis.
+ * Times are nanoseconds since the epoch. Strings are kept once per file: the template texts by template id, the server
+ * addresses in a small dictionary. Only records of old traces without a template keep their rendered SQL.
+ **/
+public class WorkloadColumns {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    public final String vmKey;
+    public long workloadContextId;
+    public int size = 0;
+    // the end of the file was cut off, the records before it were read
+    boolean isTruncated = false;
+
+    public int[] templateIds = new int[INITIAL_CAPACITY];
+    public int[] parameterHashes = new int[INITIAL_CAPACITY];
+    public long[] sequenceIds = new long[INITIAL_CAPACITY];
+    public long[] startNanos = new long[INITIAL_CAPACITY];
+    public long[] durationNanos = new long[INITIAL_CAPACITY];
+    // 0 outside of the open load generation mode
+    public long[] intendedStartNanos = new long[INITIAL_CAPACITY];
+    public long[] connectionWaitNanos = new long[INITIAL_CAPACITY];
+    public int[] attempts = new int[INITIAL_CAPACITY];
+    public long[] retryWaitNanos = new long[INITIAL_CAPACITY];
+    private int[] serverIds = new int[INITIAL_CAPACITY];
+    // only allocated if a record has no template
+    private String[] sqlStrings;
+
+    final Map<Integer, String> templateMap = new HashMap<>();
+    private final List<String> serverAddressList = new ArrayList<>();
+    private final Map<String, Integer> serverIdMap = new HashMap<>();
+
+    WorkloadColumns(String vmKey) {
+        this.vmKey = vmKey;
+    }
+
+    // appends an empty record and returns its index, the caller fills the columns
+    int addRecord() {
+        if (size == startNanos.length) {
+            int capacity = size * 2;
+            templateIds = Arrays.copyOf(templateIds, capacity);
+            parameterHashes = Arrays.copyOf(parameterHashes, capacity);
+            sequenceIds = Arrays.copyOf(sequenceIds, capacity);
+            startNanos = Arrays.copyOf(startNanos, capacity);
+            durationNanos = Arrays.copyOf(durationNanos, capacity);
+            intendedStartNanos = Arrays.copyOf(intendedStartNanos, capacity);
+            connectionWaitNanos = Arrays.copyOf(connectionWaitNanos, capacity);
+            attempts = Arrays.copyOf(attempts, capacity);
+            retryWaitNanos = Arrays.copyOf(retryWaitNanos, capacity);
+            serverIds = Arrays.copyOf(serverIds, capacity);
+            if (sqlStrings != null) {
+                sqlStrings = Arrays.copyOf(sqlStrings, capacity);
+            }
+        }
+        serverIds[size] = -1;
+        return size++;
+    }
+
+    void setServerAddress(int index, String serverAddress) {
+        if (serverAddress == null) {
+            serverIds[index] = -1;
+            return;
+        }
+        serverIds[index] = serverIdMap.computeIfAbsent(serverAddress, key -> {
+            serverAddressList.add(key);
+            return serverAddressList.size() - 1;
+        });
+    }
+
+    void setSqlString(int index, String sqlString) {
+        if (sqlStrings == null) {
+            sqlStrings = new String[startNanos.length];
+        }
+        sqlStrings[index] = sqlString;
+    }
+
+    public String getServerAddress(int index) {
+        return serverIds[index] < 0 ? null : serverAddressList.get(serverIds[index]);
+    }
+
+    // the template text, or the rendered SQL for records of old traces
+    public String getSqlString(int index) {
+        if (templateIds[index] != QueryTemplateRegistry.NO_TEMPLATE) {
+            return templateMap.get(templateIds[index]);
+        }
+        return sqlStrings == null ? null : sqlStrings[index];
+    }
+
+    public String getQueryType(int index) {
+        return QueryTemplateRegistry.getQueryType(templateIds[index], getSqlString(index));
+    }
+}
@@ -0,0 +1,297 @@
+package berlin.tu.csb.controller;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Reads all trace files of a run in one pass. Every file is parsed by its own task on a fork join pool, json files with
+ * the streaming JsonReader straight into WorkloadColumns, so neither the file content nor a WorkloadQuery per record is
+ * held in memory. The columns of every file are grouped per thread and per vm at the same time.
+ * Reads binary segments ('.trace'), jsonl segments, WorkloadTrace objects and the plain arrays of old runs.
+ **/
+public class WorkloadIngestionController {
+    static Logger logger = LogManager.getLogger(WorkloadIngestionController.class);
+
+    public static class IngestedWorkload {
+        // 'vm-<n>/Thread-<id>' -> the columns of all files of that thread, in file name order. Thread ids are only unique within one vm
+        public final Map<String, List<WorkloadColumns>> columnsByThread = new LinkedHashMap<>();
+        // 'vm-<n>' -> the columns of all files of that vm, the same objects as in columnsByThread
+        public final Map<String, List<WorkloadColumns>> columnsByVM = new LinkedHashMap<>();
+        public long queryCount = 0;
+        public int fileCount = 0;
+        // files that could not be read at all, and files whose end was cut off (the records before it are used)
+        public int skippedFileCount = 0;
+        public int truncatedFileCount = 0;
+    }
+
+    public static IngestedWorkload ingest(Path directory, String filePrefix) {
+        IngestedWorkload ingestedWorkload = new IngestedWorkload();
+        File[] files = directory.toFile().listFiles();
+        if (files == null) {
+            return ingestedWorkload;
+        }
+        Arrays.sort(files, Comparator.comparing(File::getName));
+
+        ForkJoinPool forkJoinPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            List<ForkJoinTask<WorkloadColumns>> taskList = new ArrayList<>();
+            for (File file : files) {
+                if (file.isFile() && file.getName().startsWith(filePrefix)) {
+                    taskList.add(forkJoinPool.submit(() -> readFile(file)));
+                }
+            }
+            // joined in file name order, so the grouping does not depend on which task finished first
+            for (ForkJoinTask<WorkloadColumns> task : taskList) {
+                WorkloadColumns workloadColumns = task.join();
+                if (workloadColumns == null) {
+                    ingestedWorkload.skippedFileCount++;
+                    continue;
+                }
+                if (workloadColumns.isTruncated) {
+                    ingestedWorkload.truncatedFileCount++;
+                }
+                ingestedWorkload.columnsByThread.computeIfAbsent(workloadColumns.vmKey + "/Thread-" + workloadColumns.workloadContextId, key -> new ArrayList<>()).add(workloadColumns);
+                ingestedWorkload.columnsByVM.computeIfAbsent(workloadColumns.vmKey, key -> new ArrayList<>()).add(workloadColumns);
+                ingestedWorkload.queryCount += workloadColumns.size;
+                ingestedWorkload.fileCount++;
+            }
+        } finally {
+            forkJoinPool.shutdown();
+        }
+        return ingestedWorkload;
+    }
+
+    // null if the file can not be read at all
+    private static WorkloadColumns readFile(File file) {
+        WorkloadColumns workloadColumns = new WorkloadColumns("vm-" + getVmId(file.getName()));
+        try {
+            if (file.getName().contains(".trace")) {
+                readTraceSegment(file.toPath(), workloadColumns);
+            } else {
+                readJson(file.toPath(), workloadColumns);
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.error("Could not read " + file.getName() + ", skipping it: " + e);
+            return null;
+        }
+        return workloadColumns;
+    }
+
+    // files downloaded from the other vms are named like 'run_16 (2).json', '(2)' is the vm id. Without it the file is from vm 1
+    static String getVmId(String fileName) {
+        if (fileName.contains("(") && fileName.contains(")")) {
+            return StringUtils.substringBetween(fileName, "(", ")");
+        }
+        return "1";
+    }
+
+    private static void readTraceSegment(Path path, WorkloadColumns workloadColumns) throws IOException {
+        TraceSegmentReader traceSegmentReader = new TraceSegmentReader(path);
+        workloadColumns.workloadContextId = traceSegmentReader.getHeader().workloadContextId;
+        while (traceSegmentReader.next()) {
+            int i = workloadColumns.addRecord();
+            int templateId = traceSegmentReader.getTemplateId();
+            workloadColumns.templateIds[i] = templateId;
+            if (templateId == QueryTemplateRegistry.NO_TEMPLATE) {
+                workloadColumns.setSqlString(i, traceSegmentReader.getSqlString());
+            } else if (!workloadColumns.templateMap.containsKey(templateId)) {
+                workloadColumns.templateMap.put(templateId, traceSegmentReader.getSqlString());
+            }
+            workloadColumns.parameterHashes[i] = traceSegmentReader.getParameterHash();
+            workloadColumns.sequenceIds[i] = traceSegmentReader.getSequenceId();
+            workloadColumns.startNanos[i] = traceSegmentReader.getStartNanos();
+            workloadColumns.durationNanos[i] = traceSegmentReader.getDurationNanos();
+            workloadColumns.intendedStartNanos[i] = traceSegmentReader.getIntendedStartNanos();
+            workloadColumns.connectionWaitNanos[i] = traceSegmentReader.getConnectionWaitNanos();
+            workloadColumns.attempts[i] = traceSegmentReader.getAttempt();
+            workloadColumns.retryWaitNanos[i] = traceSegmentReader.getRetryWaitNanos();
+            workloadColumns.setServerAddress(i, traceSegmentReader.getServerAddress());
+        }
+        if (traceSegmentReader.isTruncated()) {
+            workloadColumns.isTruncated = true;
+            logger.warn("Skipping the incomplete last block of trace segment " + path);
+        }
+    }
+
+    // a jsonl segment is a header object followed by one query object per line, the lenient reader takes them as a sequence of top level values
+    private static void readJson(Path path, WorkloadColumns workloadColumns) throws IOException {
+        long[] anchor = null;
+        try (JsonReader jsonReader = new JsonReader(Files.newBufferedReader(path))) {
+            jsonReader.setLenient(true);
+            SimpleDateFormat legacyFormat = new SimpleDateFormat("yyyy-MM-dd HH.mm.ss.SSS");
+            if (jsonReader.peek() == JsonToken.BEGIN_ARRAY) {
+                // runs before the WorkloadTrace header: a plain array of queries with millisecond timestamp strings
+                readQueryArray(jsonReader, workloadColumns, legacyFormat);
+                return;
+            }
+            anchor = readHeader(jsonReader, workloadColumns, legacyFormat);
+            boolean isSegment = path.getFileName().toString().contains(".jsonl");
+            try {
+                while (isSegment && jsonReader.peek() != JsonToken.END_DOCUMENT) {
+                    readQuery(jsonReader, workloadColumns, legacyFormat);
+                }
+            } catch (IOException | IllegalStateException e) {
+                // the last line of a segment can be cut off if the benchmark was killed
+                workloadColumns.isTruncated = true;
+                logger.warn("Skipping the incomplete rest of trace segment " + path);
+            }
+        } finally {
+            if (anchor != null) {
+                toEpochNanos(workloadColumns, anchor[0], anchor[1]);
+            }
+        }
+    }
+
+    // the WorkloadTrace object: thread id, clock anchor and, unless it is the header of a jsonl segment, the queries. Returns the anchor
+    private static long[] readHeader(JsonReader jsonReader, WorkloadColumns workloadColumns, SimpleDateFormat legacyFormat) throws IOException {
+        long[] anchor = new long[2];
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            switch (jsonReader.nextName()) {
+                case "workloadContextId":
+                    workloadColumns.workloadContextId = jsonReader.nextLong();
+                    break;
+                case "anchorEpochNanos":
+                    anchor[0] = jsonReader.nextLong();
+                    break;
+                case "anchorNanoTime":
+                    anchor[1] = jsonReader.nextLong();
+                    break;
+                case "workloadQueryList":
+                    readQueryArray(jsonReader, workloadColumns, legacyFormat);
+                    break;
+                default:
+                    jsonReader.skipValue();
+            }
+        }
+        jsonReader.endObject();
+        return anchor;
+    }
+
+    private static void readQueryArray(JsonReader jsonReader, WorkloadColumns workloadColumns, SimpleDateFormat legacyFormat) throws IOException {
+        if (jsonReader.peek() == JsonToken.NULL) {
+            jsonReader.nextNull();
+            return;
+        }
+        jsonReader.beginArray();
+        while (jsonReader.hasNext()) {
+            readQuery(jsonReader, workloadColumns, legacyFormat);
+        }
+        jsonReader.endArray();
+    }
+
+    private static void readQuery(JsonReader jsonReader, WorkloadColumns workloadColumns, SimpleDateFormat legacyFormat) throws IOException {
+        int i = workloadColumns.addRecord();
+        String sqlString = null;
+        String serverAddress = null;
+        String timestampBeforeCommit = null;
+        String timestampAfterCommit = null;
+        try {
+            jsonReader.beginObject();
+            while (jsonReader.hasNext()) {
+                String name = jsonReader.nextName();
+                if (jsonReader.peek() == JsonToken.NULL) {
+                    jsonReader.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "templateId":
+                        workloadColumns.templateIds[i] = jsonReader.nextInt();
+                        break;
+                    case "parameterHash":
+                        workloadColumns.parameterHashes[i] = jsonReader.nextInt();
+                        break;
+                    case "sqlString":
+                        sqlString = jsonReader.nextString();
+                        break;
+                    case "workloadContextId":
+                        workloadColumns.workloadContextId = jsonReader.nextLong();
+                        break;
+                    case "executingOrderId":
+                        workloadColumns.sequenceIds[i] = jsonReader.nextLong();
+                        break;
+                    case "startNanos":
+                        workloadColumns.startNanos[i] = jsonReader.nextLong();
+                        break;
+                    case "durationNanos":
+                        workloadColumns.durationNanos[i] = jsonReader.nextLong();
+                        break;
+                    case "intendedStartNanos":
+                        workloadColumns.intendedStartNanos[i] = jsonReader.nextLong();
+                        break;
+                    case "connectionWaitNanos":
+                        workloadColumns.connectionWaitNanos[i] = jsonReader.nextLong();
+                        break;
+                    case "attempt":
+                        workloadColumns.attempts[i] = jsonReader.nextInt();
+                        break;
+                    case "retryWaitNanos":
+                        workloadColumns.retryWaitNanos[i] = jsonReader.nextLong();
+                        break;
+                    case "serverAddress":
+                        serverAddress = jsonReader.nextString();
+                        break;
+                    case "timestampBeforeCommit":
+                        timestampBeforeCommit = jsonReader.nextString();
+                        break;
+                    case "timestampAfterCommit":
+                        timestampAfterCommit = jsonReader.nextString();
+                        break;
+                    default:
+                        jsonReader.skipValue();
+                }
+            }
+            jsonReader.endObject();
+        } catch (IOException | RuntimeException e) {
+            // drops the half read record
+            workloadColumns.size--;
+            throw e;
+        }
+
+        int templateId = workloadColumns.templateIds[i];
+        if (templateId == QueryTemplateRegistry.NO_TEMPLATE) {
+            workloadColumns.setSqlString(i, sqlString);
+        } else if (sqlString != null && !workloadColumns.templateMap.containsKey(templateId)) {
+            workloadColumns.templateMap.put(templateId, sqlString);
+        }
+        workloadColumns.setServerAddress(i, serverAddress);
+        if (timestampBeforeCommit != null && !timestampBeforeCommit.isBlank()) {
+            try {
+                long beforeMillis = legacyFormat.parse(timestampBeforeCommit).getTime();
+                long afterMillis = legacyFormat.parse(timestampAfterCommit).getTime();
+                workloadColumns.startNanos[i] = beforeMillis * 1_000_000L;
+                workloadColumns.durationNanos[i] = (afterMillis - beforeMillis) * 1_000_000L;
+            } catch (ParseException e) {
+                logger.warn("Could not parse the timestamps of a query: " + e.getMessage());
+            }
+        }
+    }
+
+    // maps the System.nanoTime() values of the thread to nanoseconds since the epoch
+    private static void toEpochNanos(WorkloadColumns workloadColumns, long anchorEpochNanos, long anchorNanoTime) {
+        for (int i = 0; i < workloadColumns.size; i++) {
+            workloadColumns.startNanos[i] = anchorEpochNanos + (workloadColumns.startNanos[i] - anchorNanoTime);
+            if (workloadColumns.intendedStartNanos[i] != 0) {
+                workloadColumns.intendedStartNanos[i] = anchorEpochNanos + (workloadColumns.intendedStartNanos[i] - anchorNanoTime);
+            }
+        }
+    }
+}
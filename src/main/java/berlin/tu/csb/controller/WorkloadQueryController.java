@@ -1,24 +1,103 @@
 package berlin.tu.csb.controller;
 
+import berlin.tu.csb.model.BenchmarkConfig;
 import berlin.tu.csb.model.WorkloadQuery;
+import berlin.tu.csb.model.WorkloadTrace;
 
-import java.util.ArrayList;
+import java.nio.file.Path;
+import java.time.Instant;
 
 public class WorkloadQueryController {
 
-    ArrayList<WorkloadQuery> workloadQueryList = new ArrayList<>();
     long workloadQueryIncrementalId = 0;
     long workloadContextId;
+    // time spent waiting for a pooled connection, attributed to the first query that runs on that connection
+    long pendingConnectionWaitNanos = 0;
+    long intendedStartNanos = 0;
+    // the wall clock is read once, every query only stores System.nanoTime() values
+    final long anchorNanoTime;
+    final long anchorEpochNanos;
+    int transactionAttempt = 0;
+    long transactionRetryWaitNanos = 0;
+    String serverAddress;
+    // if set, the queries are streamed to disk, without it they are only counted and sent to JFR
+    TraceSink traceSink;
 
-    public void add(String sqlString, String timestampBeforeCommit, String timestampAfterCommit) {
+    public WorkloadQueryController() {
+        Instant now = Instant.now();
+        this.anchorNanoTime = System.nanoTime();
+        this.anchorEpochNanos = now.getEpochSecond() * 1_000_000_000L + now.getNano();
+    }
+
+    public void setConnectionWaitNanos(long connectionWaitNanos) {
+        this.pendingConnectionWaitNanos = connectionWaitNanos;
+    }
+
+    public void setTransactionAttempt(int transactionAttempt, long transactionRetryWaitNanos) {
+        this.transactionAttempt = transactionAttempt;
+        this.transactionRetryWaitNanos = transactionRetryWaitNanos;
+    }
+
+    public void setServerAddress(String serverAddress) {
+        this.serverAddress = serverAddress;
+    }
+
+    public void startTraceSink(Path directory, String filePrefix, BenchmarkConfig benchmarkConfig) {
+        WorkloadTrace header = new WorkloadTrace();
+        header.workloadContextId = workloadContextId;
+        header.anchorNanoTime = anchorNanoTime;
+        header.anchorEpochNanos = anchorEpochNanos;
+        this.traceSink = new TraceSink(directory, filePrefix, header, benchmarkConfig);
+    }
+
+    public void closeTraceSink() {
+        if (traceSink != null) {
+            traceSink.close();
+        }
+    }
+
+    public void setIntendedStartNanos(long intendedStartNanos) {
+        this.intendedStartNanos = intendedStartNanos;
+    }
+
+    // startNanos and endNanos are System.nanoTime() values
+    public void add(int templateId, int parameterHash, long startNanos, long endNanos) {
         workloadContextId = Thread.currentThread().getId();
         WorkloadQuery workloadQuery = new WorkloadQuery();
-        workloadQuery.sqlString = sqlString;
+        workloadQuery.templateId = templateId;
+        workloadQuery.parameterHash = parameterHash;
         workloadQuery.workloadContextId = workloadContextId;
         workloadQuery.executingOrderId = workloadQueryIncrementalId++;
-        workloadQuery.timestampBeforeCommit = timestampBeforeCommit;
-        workloadQuery.timestampAfterCommit = timestampAfterCommit;
+        workloadQuery.startNanos = startNanos;
+        workloadQuery.durationNanos = endNanos - startNanos;
+        workloadQuery.connectionWaitNanos = pendingConnectionWaitNanos;
+        workloadQuery.intendedStartNanos = intendedStartNanos;
+        workloadQuery.attempt = transactionAttempt;
+        workloadQuery.retryWaitNanos = transactionRetryWaitNanos;
+        workloadQuery.serverAddress = serverAddress;
+        pendingConnectionWaitNanos = 0;
+        commitQueryEvent(workloadQuery);
+
+        if (traceSink != null) {
+            traceSink.add(workloadQuery);
+        }
+    }
 
-        workloadQueryList.add(workloadQuery);
+    // the query already ran, so the JFR event carries its duration as a field instead of spanning it
+    private static void commitQueryEvent(WorkloadQuery workloadQuery) {
+        BenchmarkEvents.QueryEvent queryEvent = new BenchmarkEvents.QueryEvent();
+        if (!queryEvent.isEnabled()) {
+            return;
+        }
+        String template = QueryTemplateRegistry.getTemplate(workloadQuery.templateId);
+        queryEvent.operationType = QueryTemplateRegistry.getQueryType(workloadQuery.templateId, template);
+        queryEvent.templateId = workloadQuery.templateId;
+        queryEvent.template = template;
+        queryEvent.serverAddress = workloadQuery.serverAddress;
+        queryEvent.attempt = workloadQuery.attempt;
+        queryEvent.queryDuration = workloadQuery.durationNanos;
+        queryEvent.connectionWait = workloadQuery.connectionWaitNanos;
+        queryEvent.commit();
     }
+
 }
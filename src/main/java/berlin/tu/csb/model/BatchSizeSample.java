@@ -0,0 +1,10 @@
+package berlin.tu.csb.model;
+
+public class BatchSizeSample {
+    public long timestampMillis;
+    public String tableName;
+    public int batchSize;
+    public long commitLatencyNanos;
+    public int retries;
+    public int nextBatchSize;
+}
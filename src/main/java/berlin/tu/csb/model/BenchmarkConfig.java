@@ -12,4 +12,52 @@ public class BenchmarkConfig {
     public Map<String, Integer> useCasesProbabilityDistribution;
     public int minRunTimeOfRunPhaseInMinutes;
     public int initialWaitTimeForCoordinationInSeconds;
+    public int connectionPoolMaxSizePerServer;
+    public int connectionPoolMinIdlePerServer;
+    public long connectionPoolTimeoutInMilliseconds;
+    public long connectionPoolSampleIntervalInMilliseconds;
+    public String connectionInitSql;
+    // "closed": every thread issues the next operation after the previous one finished
+    // "open": every thread follows a fixed schedule of arrival times. It still waits for its previous operation, late operations
+    // are issued immediately and carry their scheduled start, so the analysis can correct their latency for the schedule lag
+    public String loadGenerationMode;
+    public double targetArrivalRatePerSecond;
+    // "constant" or "poisson" inter-arrival times in the open mode
+    public String arrivalDistribution;
+    // "copy" streams the generated rows through COPY FROM STDIN, "batch" uses batched INSERT statements
+    public String loadPhaseInsertMode;
+    // the bulk insert path commits in chunks and adapts the chunk size between these bounds to the observed commit latency
+    public int bulkInsertInitialBatchSize;
+    public int bulkInsertMinBatchSize;
+    public int bulkInsertMaxBatchSize;
+    public long bulkInsertTargetCommitLatencyInMilliseconds;
+    // retries of transactions that failed with a retryable error (40001), with jittered exponential backoff
+    public int transactionMaxRetries;
+    public long transactionRetryInitialBackoffInMilliseconds;
+    public long transactionRetryMaxBackoffInMilliseconds;
+    // no further retry is started once an operation has been running for this long
+    public long transactionDeadlineInMilliseconds;
+    // the state preload before the run phase fetches every table in this many primary key ranges with a cursor of this fetch size
+    public int preloadFetchSize;
+    public int preloadRangesPerTable;
+    public int preloadParallelism;
+    // "static" pins every thread to one server, "round-robin", "least-outstanding" or "latency-aware" pick a server per connection checkout
+    public String loadBalancingPolicy;
+    public long loadBalancingHealthCheckIntervalInMilliseconds;
+    // every worker thread streams its queries through a bounded queue into binary '.trace' segments of this size
+    public int traceQueueCapacity;
+    public long traceSegmentSizeInBytes;
+    public long traceFlushIntervalInMilliseconds;
+    // throughput, latency percentiles, errors and retries per operation are logged and written to live_metrics_<phase>.csv in this interval
+    public long liveMetricsIntervalInMilliseconds;
+    // logs the rendered SQL of every n-th statement per thread for debugging, 0 disables it
+    public long sqlDebugSampleEveryNthStatement;
+    // the offset of the local clock to the clock of clockReferenceAddress is estimated in this interval and written to clock_offsets_<phase>.json
+    public long clockOffsetSampleIntervalInMilliseconds;
+    // round trips per estimate, the one with the shortest round trip is kept
+    public int clockOffsetProbesPerSample;
+    // the node all vms measure their clock offset against, the nodes of a cluster can drift apart by up to its max-offset
+    public String clockReferenceAddress;
+    // "off", a predefined JFR configuration ("default" or "profile") or the path of a .jfc file, records every phase to <phase>.jfr
+    public String jfrRecordingMode;
 }
@@ -0,0 +1,12 @@
+package berlin.tu.csb.model;
+
+// One NTP style estimate of how far the clock of the database server is ahead of the clock of this vm
+public class ClockOffsetSample {
+    // local wall clock in the middle of the probe, nanoseconds since the epoch
+    public long clientEpochNanos;
+    // server clock minus local clock
+    public long offsetNanos;
+    // half of the round trip time of the probe, the true offset is within offsetNanos +- uncertaintyNanos
+    public long uncertaintyNanos;
+    public String serverAddress;
+}
@@ -1,5 +1,6 @@
 package berlin.tu.csb.model;
 
+import berlin.tu.csb.controller.CopyRowBuilder;
 import berlin.tu.csb.controller.SeededRandomHelper;
 
 import java.sql.PreparedStatement;
@@ -9,6 +10,8 @@ import java.util.AbstractMap;
 import java.util.UUID;
 
 public class Customer implements DatabaseTableModel {
+    private static final String[] COLUMN_NAMES = {"c_id", "c_business_name", "c_business_info", "c_passwd", "c_contact_fname", "c_contact_lname", "c_addr", "c_contact_phone", "c_contact_email", "c_payment_method", "c_credit_info", "c_discount"};
+
     public String c_id;
     public String c_business_name;
     public String c_business_info;
@@ -72,14 +75,68 @@ public class Customer implements DatabaseTableModel {
         c_discount = resultSet.getFloat("c_discount");
     }
 
+    @Override
+    public void initWithResultSet(ResultSet resultSet, int[] columnIndexes) throws SQLException {
+        c_id = resultSet.getString(columnIndexes[0]);
+        c_business_name = resultSet.getString(columnIndexes[1]);
+        c_business_info = resultSet.getString(columnIndexes[2]);
+        c_passwd = resultSet.getString(columnIndexes[3]);
+        c_contact_fname = resultSet.getString(columnIndexes[4]);
+        c_contact_lname = resultSet.getString(columnIndexes[5]);
+        c_addr = resultSet.getString(columnIndexes[6]);
+        c_contact_phone = resultSet.getString(columnIndexes[7]);
+        c_contact_email = resultSet.getString(columnIndexes[8]);
+        c_payment_method = resultSet.getString(columnIndexes[9]);
+        c_credit_info = resultSet.getString(columnIndexes[10]);
+        c_discount = resultSet.getFloat(columnIndexes[11]);
+    }
+
+    @Override
+    public String[] getColumnNames() {
+        return COLUMN_NAMES;
+    }
+
     @Override
     public String getSQLInsertString() {
         return "INSERT INTO customer (c_id, c_business_name, c_business_info, c_passwd, c_contact_fname, c_contact_lname, c_addr, c_contact_phone, c_contact_email, c_payment_method, c_credit_info, c_discount) VALUES (?, ?, ?, ?, ?, ? ,?, ?, ?, ?, ?, ?)";
     }
 
     @Override
-    public String getBasicSQLSelfSelectString() {
-        return String.format("SELECT * FROM customer WHERE c_id = '%s';", c_id);
+    public String getTableName() {
+        return "customer";
+    }
+
+    @Override
+    public String getSQLCopyString() {
+        return "COPY customer (c_id, c_business_name, c_business_info, c_passwd, c_contact_fname, c_contact_lname, c_addr, c_contact_phone, c_contact_email, c_payment_method, c_credit_info, c_discount) FROM STDIN";
+    }
+
+    @Override
+    public void appendCopyRow(CopyRowBuilder copyRowBuilder) {
+        copyRowBuilder
+                .add(c_id)
+                .add(c_business_name)
+                .add(c_business_info)
+                .add(c_passwd)
+                .add(c_contact_fname)
+                .add(c_contact_lname)
+                .add(c_addr)
+                .add(c_contact_phone)
+                .add(c_contact_email)
+                .add(c_payment_method)
+                .add(c_credit_info)
+                .add(c_discount);
+        copyRowBuilder.endRow();
+    }
+
+    @Override
+    public String getSQLSelfSelectTemplate() {
+        return "SELECT * FROM customer WHERE c_id = ?";
+    }
+
+    @Override
+    public String getSQLSelectByForeignKeyTemplate(String foreignKeyName) {
+        throw new IllegalArgumentException("customer has no foreign key " + foreignKeyName);
     }
 
 
@@ -1,5 +1,6 @@
 package berlin.tu.csb.model;
 
+import berlin.tu.csb.controller.CopyRowBuilder;
 import berlin.tu.csb.controller.SeededRandomHelper;
 
 import java.sql.PreparedStatement;
@@ -14,9 +15,25 @@ public interface DatabaseTableModel {
 
     void initWithResultSet(ResultSet resultSet) throws SQLException;
 
+    // columnIndexes holds the result set index of every column of getColumnNames, in the same order
+    void initWithResultSet(ResultSet resultSet, int[] columnIndexes) throws SQLException;
+
+    String[] getColumnNames();
+
     String getSQLInsertString();
 
-    String getBasicSQLSelfSelectString();
+    String getTableName();
+
+    // COPY ... FROM STDIN statement in the text format with the same column order as appendCopyRow
+    String getSQLCopyString();
+
+    void appendCopyRow(CopyRowBuilder copyRowBuilder);
+
+    // parameterized with the primary key, so the statement text stays the same for every object
+    String getSQLSelfSelectTemplate();
+
+    // parameterized with the value of the given foreign key column
+    String getSQLSelectByForeignKeyTemplate(String foreignKeyName);
 
     String getBasicSQLAllSelectString();
 
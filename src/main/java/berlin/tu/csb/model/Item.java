@@ -1,5 +1,6 @@
 package berlin.tu.csb.model;
 
+import berlin.tu.csb.controller.CopyRowBuilder;
 import berlin.tu.csb.controller.SeededRandomHelper;
 
 import java.sql.PreparedStatement;
@@ -10,6 +11,8 @@ import java.util.AbstractMap;
 import java.util.UUID;
 
 public class Item implements DatabaseTableModel{
+    private static final String[] COLUMN_NAMES = {"i_id", "i_title", "i_pub_date", "i_publisher", "i_subject", "i_desc", "i_srp", "i_cost", "i_isbn", "i_page"};
+
     public String i_id;
     public String i_title;
     public Timestamp i_pub_date;
@@ -65,14 +68,64 @@ public class Item implements DatabaseTableModel{
         i_page = resultSet.getInt("i_page");
     }
 
+    @Override
+    public void initWithResultSet(ResultSet resultSet, int[] columnIndexes) throws SQLException {
+        i_id = resultSet.getString(columnIndexes[0]);
+        i_title = resultSet.getString(columnIndexes[1]);
+        i_pub_date = resultSet.getTimestamp(columnIndexes[2]);
+        i_publisher = resultSet.getString(columnIndexes[3]);
+        i_subject = resultSet.getString(columnIndexes[4]);
+        i_desc = resultSet.getString(columnIndexes[5]);
+        i_srp = resultSet.getFloat(columnIndexes[6]);
+        i_cost = resultSet.getFloat(columnIndexes[7]);
+        i_isbn = resultSet.getString(columnIndexes[8]);
+        i_page = resultSet.getInt(columnIndexes[9]);
+    }
+
+    @Override
+    public String[] getColumnNames() {
+        return COLUMN_NAMES;
+    }
+
     @Override
     public String getSQLInsertString() {
         return "INSERT INTO item (i_id, i_title, i_pub_date, i_publisher, i_subject, i_desc, i_srp, i_cost, i_isbn, i_page) VALUES (?, ?, ?, ?, ?, ? ,?, ?, ?, ?)";
     }
 
     @Override
-    public String getBasicSQLSelfSelectString() {
-        return String.format("SELECT * FROM item WHERE i_id = '%s'", i_id);
+    public String getTableName() {
+        return "item";
+    }
+
+    @Override
+    public String getSQLCopyString() {
+        return "COPY item (i_id, i_title, i_pub_date, i_publisher, i_subject, i_desc, i_srp, i_cost, i_isbn, i_page) FROM STDIN";
+    }
+
+    @Override
+    public void appendCopyRow(CopyRowBuilder copyRowBuilder) {
+        copyRowBuilder
+                .add(i_id)
+                .add(i_title)
+                .add(i_pub_date)
+                .add(i_publisher)
+                .add(i_subject)
+                .add(i_desc)
+                .add(i_srp)
+                .add(i_cost)
+                .add(i_isbn)
+                .add(i_page);
+        copyRowBuilder.endRow();
+    }
+
+    @Override
+    public String getSQLSelfSelectTemplate() {
+        return "SELECT * FROM item WHERE i_id = ?";
+    }
+
+    @Override
+    public String getSQLSelectByForeignKeyTemplate(String foreignKeyName) {
+        throw new IllegalArgumentException("item has no foreign key " + foreignKeyName);
     }
 
     @Override
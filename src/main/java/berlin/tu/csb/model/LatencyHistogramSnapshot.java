@@ -0,0 +1,15 @@
+package berlin.tu.csb.model;
+
+// A LatencyHistogram in a form that can be written to json and merged with the histograms of other runs later
+public class LatencyHistogramSnapshot {
+    public String name;
+    // layout of the buckets, only histograms with the same layout can be merged
+    public int subBucketBits;
+    public long totalCount;
+    public long sumNanos;
+    public long minNanos;
+    public long maxNanos;
+    // the buckets that are not empty
+    public int[] bucketIndices;
+    public long[] bucketCounts;
+}
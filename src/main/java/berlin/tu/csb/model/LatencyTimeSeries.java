@@ -0,0 +1,22 @@
+package berlin.tu.csb.model;
+
+// Latencies of a run binned by the end of the query, one entry per bucket of bucketMillis. Empty buckets have a count of 0 and latencies of 0
+public class LatencyTimeSeries {
+    public long firstBucketStartMillis;
+    public long bucketMillis;
+    public int bucketCount;
+    public long[] counts;
+    public double[] meanMillis;
+    public double[] p50Millis;
+    public double[] p95Millis;
+    public double[] p99Millis;
+    public double[] maxMillis;
+
+    public long getBucketStartMillis(int bucket) {
+        return firstBucketStartMillis + bucket * bucketMillis;
+    }
+
+    public double getQueriesPerSecond(int bucket) {
+        return counts[bucket] * 1000d / bucketMillis;
+    }
+}
@@ -0,0 +1,17 @@
+package berlin.tu.csb.model;
+
+public class LoadThroughput {
+    public String tableName;
+    public long workloadContextId;
+    public long rows;
+    public long bytes;
+    public long durationNanos;
+
+    public double getRowsPerSecond() {
+        return durationNanos == 0 ? 0 : rows / (durationNanos / 1_000_000_000d);
+    }
+
+    public double getMegaBytesPerSecond() {
+        return durationNanos == 0 ? 0 : (bytes / (1024d * 1024d)) / (durationNanos / 1_000_000_000d);
+    }
+}
@@ -1,6 +1,7 @@
 package berlin.tu.csb.model;
 
 
+import berlin.tu.csb.controller.CopyRowBuilder;
 import berlin.tu.csb.controller.SeededRandomHelper;
 
 import java.sql.PreparedStatement;
@@ -11,6 +12,8 @@ import java.util.AbstractMap;
 import java.util.UUID;
 
 public class Order implements DatabaseTableModel{
+    private static final String[] COLUMN_NAMES = {"o_id", "c_id", "o_date", "o_sub_total", "o_tax", "o_total", "o_ship_type", "o_ship_date", "o_ship_addr", "o_status"};
+
     public String o_id;
     public String c_id;
     public Timestamp o_date;
@@ -67,14 +70,67 @@ public class Order implements DatabaseTableModel{
         o_status = resultSet.getString("o_status");
     }
 
+    @Override
+    public void initWithResultSet(ResultSet resultSet, int[] columnIndexes) throws SQLException {
+        o_id = resultSet.getString(columnIndexes[0]);
+        c_id = resultSet.getString(columnIndexes[1]);
+        o_date = resultSet.getTimestamp(columnIndexes[2]);
+        o_sub_total = resultSet.getFloat(columnIndexes[3]);
+        o_tax = resultSet.getFloat(columnIndexes[4]);
+        o_total = resultSet.getFloat(columnIndexes[5]);
+        o_ship_type = resultSet.getString(columnIndexes[6]);
+        o_ship_date = resultSet.getTimestamp(columnIndexes[7]);
+        o_ship_addr = resultSet.getString(columnIndexes[8]);
+        o_status = resultSet.getString(columnIndexes[9]);
+    }
+
+    @Override
+    public String[] getColumnNames() {
+        return COLUMN_NAMES;
+    }
+
     @Override
     public String getSQLInsertString() {
         return "INSERT INTO orders (o_id, c_id, o_date, o_sub_total, o_tax, o_total, o_ship_type, o_ship_date, o_ship_addr, o_status) VALUES (?, ?, ?, ?, ?, ? ,?, ?, ?, ?)";
     }
 
     @Override
-    public String getBasicSQLSelfSelectString() {
-        return String.format("SELECT * FROM orders WHERE o_id = '%s'", o_id);
+    public String getTableName() {
+        return "orders";
+    }
+
+    @Override
+    public String getSQLCopyString() {
+        return "COPY orders (o_id, c_id, o_date, o_sub_total, o_tax, o_total, o_ship_type, o_ship_date, o_ship_addr, o_status) FROM STDIN";
+    }
+
+    @Override
+    public void appendCopyRow(CopyRowBuilder copyRowBuilder) {
+        copyRowBuilder
+                .add(o_id)
+                .add(c_id)
+                .add(o_date)
+                .add(o_sub_total)
+                .add(o_tax)
+                .add(o_total)
+                .add(o_ship_type)
+                .add(o_ship_date)
+                .add(o_ship_addr)
+                .add(o_status);
+        copyRowBuilder.endRow();
+    }
+
+    @Override
+    public String getSQLSelfSelectTemplate() {
+        return "SELECT * FROM orders WHERE o_id = ?";
+    }
+
+    @Override
+    public String getSQLSelectByForeignKeyTemplate(String foreignKeyName) {
+        if (foreignKeyName.equals("c_id")) {
+            return "SELECT * FROM orders WHERE c_id = ?";
+        }
+        throw new IllegalArgumentException("orders has no foreign key " + foreignKeyName);
     }
 
     @Override
@@ -1,5 +1,6 @@
 package berlin.tu.csb.model;
 
+import berlin.tu.csb.controller.CopyRowBuilder;
 import berlin.tu.csb.controller.SeededRandomHelper;
 
 import java.sql.PreparedStatement;
@@ -9,6 +10,8 @@ import java.util.AbstractMap;
 import java.util.UUID;
 
 public class OrderLine implements DatabaseTableModel{
+    private static final String[] COLUMN_NAMES = {"ol_id", "o_id", "i_id", "ol_qty", "ol_discount", "ol_status"};
+
     public String ol_id;
     public String o_id;
     public String i_id;
@@ -49,14 +52,63 @@ public class OrderLine implements DatabaseTableModel{
         ol_status = resultSet.getString("ol_status");
     }
 
+    @Override
+    public void initWithResultSet(ResultSet resultSet, int[] columnIndexes) throws SQLException {
+        ol_id = resultSet.getString(columnIndexes[0]);
+        o_id = resultSet.getString(columnIndexes[1]);
+        i_id = resultSet.getString(columnIndexes[2]);
+        ol_qty = resultSet.getInt(columnIndexes[3]);
+        ol_discount = resultSet.getFloat(columnIndexes[4]);
+        ol_status = resultSet.getString(columnIndexes[5]);
+    }
+
+    @Override
+    public String[] getColumnNames() {
+        return COLUMN_NAMES;
+    }
+
     @Override
     public String getSQLInsertString() {
         return "INSERT INTO order_line (ol_id, o_id, i_id, ol_qty, ol_discount, ol_status) VALUES (?, ?, ?, ?, ?, ? )";
     }
 
     @Override
-    public String getBasicSQLSelfSelectString() {
-        return String.format("SELECT * FROM order_line WHERE ol_id = '%s'", ol_id);
+    public String getTableName() {
+        return "order_line";
+    }
+
+    @Override
+    public String getSQLCopyString() {
+        return "COPY order_line (ol_id, o_id, i_id, ol_qty, ol_discount, ol_status) FROM STDIN";
+    }
+
+    @Override
+    public void appendCopyRow(CopyRowBuilder copyRowBuilder) {
+        copyRowBuilder
+                .add(ol_id)
+                .add(o_id)
+                .add(i_id)
+                .add(ol_qty)
+                .add(ol_discount)
+                .add(ol_status);
+        copyRowBuilder.endRow();
+    }
+
+    @Override
+    public String getSQLSelfSelectTemplate() {
+        return "SELECT * FROM order_line WHERE ol_id = ?";
+    }
+
+    @Override
+    public String getSQLSelectByForeignKeyTemplate(String foreignKeyName) {
+        switch (foreignKeyName) {
+            case "o_id":
+                return "SELECT * FROM order_line WHERE o_id = ?";
+            case "i_id":
+                return "SELECT * FROM order_line WHERE i_id = ?";
+            default:
+                throw new IllegalArgumentException("order_line has no foreign key " + foreignKeyName);
+        }
     }
 
     @Override
@@ -0,0 +1,30 @@
+package berlin.tu.csb.model;
+
+// One row of the run comparison: throughput and latency percentiles of the steady state with their bootstrap confidence intervals
+public class RunSummary {
+    public String runName;
+    // parsed from directory names like '6suts_4cpus_4t', 0 if the name does not contain them
+    public int suts;
+    public int cpus;
+    public int threads;
+    public long queryCount;
+    public double steadyStateSeconds;
+    public double throughputPerSecond;
+    public double throughputLow;
+    public double throughputHigh;
+    public double p50Millis;
+    public double p50Low;
+    public double p50High;
+    public double p95Millis;
+    public double p95Low;
+    public double p95High;
+    public double p99Millis;
+    public double p99Low;
+    public double p99High;
+    // against the baseline, the first run of the comparison
+    public double speedup;
+    public double efficiency;
+    public String regressions;
+    // bootstrap replicates of throughput, p50, p95 and p99, only needed to compare against the baseline
+    public transient double[][] bootstrapReplicates;
+}
@@ -0,0 +1,16 @@
+package berlin.tu.csb.model;
+
+// The part of a run that is used for the statistics, from the end of the warm-up to the start of the cool-down. Buckets of the LatencyTimeSeries [firstBucket, endBucket)
+public class SteadyStateWindow {
+    public long startMillis;
+    public long endMillis;
+    public int firstBucket;
+    public int endBucket;
+    public double warmUpSeconds;
+    public double coolDownSeconds;
+
+    // queries are assigned to the window by the time they ended, as in the time series
+    public boolean contains(long endNanos) {
+        return endNanos >= startMillis * 1_000_000L && endNanos < endMillis * 1_000_000L;
+    }
+}
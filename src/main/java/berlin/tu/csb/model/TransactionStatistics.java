@@ -0,0 +1,12 @@
+package berlin.tu.csb.model;
+
+public class TransactionStatistics {
+    public String operationName;
+    public long executions;
+    public long attempts;
+    public long retries;
+    public long retryWaitNanos;
+    public long aborts;
+    // replays on another node after a connection failure, only with a load balanced data source
+    public long failovers;
+}
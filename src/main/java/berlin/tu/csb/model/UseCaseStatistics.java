@@ -0,0 +1,18 @@
+package berlin.tu.csb.model;
+
+// End to end numbers of one use case of the run phase, summed over all threads
+public class UseCaseStatistics {
+    public String useCaseName;
+    public long invocations;
+    public long successes;
+    // an operation of the use case was aborted or the use case threw an exception
+    public long failures;
+    public long statements;
+    public long rowsReturned;
+    public double throughputPerSecond;
+    public double meanMillis;
+    public double p50Millis;
+    public double p95Millis;
+    public double p99Millis;
+    public double maxMillis;
+}
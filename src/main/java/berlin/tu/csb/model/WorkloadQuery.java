@@ -1,9 +1,26 @@
 package berlin.tu.csb.model;
 
 public class WorkloadQuery {
+    // stable id of the statement text, see QueryTemplateRegistry. Traces only store the id, the analysis fills in sqlString with the template text
+    public int templateId;
+    // hash of the parameter that identifies the accessed row, 0 if the statement has none
+    public int parameterHash;
     public String sqlString;
     public long workloadContextId;
     public long executingOrderId;
+    // System.nanoTime() of the thread that executed the query, the WorkloadTrace anchor maps it to the wall clock
+    public long startNanos;
+    public long durationNanos;
+    // only set in the open load generation mode: the time the operation this query belongs to was scheduled for, same clock as startNanos
+    public long intendedStartNanos;
+    public long connectionWaitNanos;
+    // 1 unless the transaction this query belongs to had to be retried
+    public int attempt;
+    // backoff time spent before this attempt
+    public long retryWaitNanos;
+    // the node of the SUT that served the query
+    public String serverAddress;
+    // only in traces written before the nanosecond capture, formatted as "yyyy-MM-dd HH.mm.ss.SSS"
     public String timestampBeforeCommit;
     public String timestampAfterCommit;
 }
@@ -0,0 +1,16 @@
+package berlin.tu.csb.model;
+
+import java.util.List;
+
+// The queries of one thread. The anchor pairs one System.nanoTime() reading with the wall clock taken at the same moment.
+public class WorkloadTrace {
+    public long workloadContextId;
+    public long anchorEpochNanos;
+    public long anchorNanoTime;
+    public List<WorkloadQuery> workloadQueryList;
+
+    // maps a System.nanoTime() value of this thread to nanoseconds since the epoch
+    public long toEpochNanos(long nanoTime) {
+        return anchorEpochNanos + (nanoTime - anchorNanoTime);
+    }
+}
@@ -121,9 +121,9 @@ resource "google_compute_instance" "benchmark_nodes" {
       "curl -sSO https://dl.google.com/cloudagents/add-google-cloud-ops-agent-repo.sh",
       "sudo bash add-google-cloud-ops-agent-repo.sh --also-install",
       "sudo apt install openjdk-17-jre -y",
-      "echo 'java -Xmx12G -jar ${var.remote_path_to_jar_file} run ${google_compute_instance.cockroach_nodes[count.index].network_interface.0.network_ip} ${(count.index + 1) * 1000} ${var.benchmark_run_duration_in_minutes} ${var.benchmark_run_threads}' > runBenchmark.sh",
+      "echo 'java -Xmx12G -jar ${var.remote_path_to_jar_file} run ${google_compute_instance.cockroach_nodes[count.index].network_interface.0.network_ip} ${(count.index + 1) * 1000} ${var.benchmark_run_duration_in_minutes} ${var.benchmark_run_threads} ${google_compute_instance.cockroach_nodes[0].network_interface.0.network_ip}' > runBenchmark.sh",
       "chmod +x runBenchmark.sh",
-      "echo 'java -Xmx12G -jar ${var.remote_path_to_jar_file} load ${google_compute_instance.cockroach_nodes[count.index].network_interface.0.network_ip} ${(count.index + 1) * 1000} ${var.benchmark_load_customers} ${var.benchmark_load_items} ${var.benchmark_load_threads}' > runLoad.sh",
+      "echo 'java -Xmx12G -jar ${var.remote_path_to_jar_file} load ${google_compute_instance.cockroach_nodes[count.index].network_interface.0.network_ip} ${(count.index + 1) * 1000} ${var.benchmark_load_customers} ${var.benchmark_load_items} ${var.benchmark_load_threads} ${google_compute_instance.cockroach_nodes[0].network_interface.0.network_ip}' > runLoad.sh",
       "chmod +x runLoad.sh",
       "mkdir workload",
       "echo '${self.name}, ${self.machine_type}, ${self.zone}, ${self.network_interface.0.access_config.0.nat_ip}, ${self.network_interface.0.network_ip}, ${self.boot_disk[0].initialize_params[0].image}' > workload/machine.txt"